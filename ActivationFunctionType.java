@@ -1,5 +1,7 @@
 public enum ActivationFunctionType {
     SIGMOID,
     LINEAR,
-    SOFTMAX
+    SOFTMAX,
+    RELU, // DeepMLP only
+    TANH  // DeepMLP only
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+// Adam with bias-corrected first and second moment estimates. A non-zero weightDecay gives
+// AdamW: the decay is applied to the weights directly rather than folded into the gradient.
+// The learning rate passed to step() plays the role of Adam's alpha; 0.001 is the usual start.
+public class AdamOptimizer implements Optimizer {
+    double beta1, beta2, epsilon, weightDecay;
+    long t; // number of updates so far
+    double correction1, correction2; // 1 - beta^t for the current update
+    double[][] m = new double[0][], v = new double[0][]; // moments, one array per slot
+
+    public AdamOptimizer() {
+        this(0.9, 0.999, 1e-8, 0.0);
+    }
+
+    public AdamOptimizer(double beta1, double beta2, double epsilon, double weightDecay) {
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+        this.weightDecay = weightDecay;
+    }
+
+    @Override
+    public void beginStep() {
+        t++;
+        correction1 = 1.0 - Math.pow(beta1, t);
+        correction2 = 1.0 - Math.pow(beta2, t);
+    }
+
+    @Override
+    public void step(int slot, double[] weights, double[] grads, double learningRate) {
+        if (slot >= m.length) {
+            m = Arrays.copyOf(m, slot + 1);
+            v = Arrays.copyOf(v, slot + 1);
+        }
+        if (m[slot] == null) {
+            m[slot] = new double[weights.length];
+            v[slot] = new double[weights.length];
+        }
+        double[] ms = m[slot];
+        double[] vs = v[slot];
+        double decay = learningRate * weightDecay;
+        for (int n = 0; n < weights.length; n++) {
+            double g = grads[n];
+            ms[n] = beta1 * ms[n] + (1.0 - beta1) * g;
+            vs[n] = beta2 * vs[n] + (1.0 - beta2) * g * g;
+            double mHat = ms[n] / correction1;
+            double vHat = vs[n] / correction2;
+            weights[n] -= learningRate * mHat / (Math.sqrt(vHat) + epsilon) + decay * weights[n];
+            grads[n] = 0.0;
+        }
+    }
+
+    // {t}, then the first and second moments of each slot in turn
+    @Override
+    public double[][] state() {
+        double[][] state = new double[1 + 2 * m.length][];
+        state[0] = new double[] {t};
+        for (int s = 0; s < m.length; s++) {
+            state[1 + 2 * s] = m[s] == null ? null : m[s].clone();
+            state[2 + 2 * s] = v[s] == null ? null : v[s].clone();
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(double[][] state) {
+        t = (long) state[0][0];
+        int slots = (state.length - 1) / 2;
+        m = new double[slots][];
+        v = new double[slots][];
+        for (int s = 0; s < slots; s++) {
+            m[s] = copyOrNull(state[1 + 2 * s]);
+            v[s] = copyOrNull(state[2 + 2 * s]);
+        }
+    }
+
+    // A slot that was never stepped has no moments yet
+    private static double[] copyOrNull(double[] moments) {
+        return moments == null || moments.length == 0 ? null : moments.clone();
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Measures heap allocation per training epoch on the letter recognition data and checks that the
+// steady-state training loops allocate nothing. Exits with status 1 if either loop allocates.
+// Usage: java AllocationExperiment [warmupEpochs] [measuredEpochs]
+public class AllocationExperiment {
+    public static void main(String[] args) throws Exception {
+        int warmupEpochs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int measuredEpochs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int batchSize = 10;
+        double learningRate = 0.1;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, (int) (0.8 * dataset.size())));
+
+        // Per-example forward/backward with an update every batchSize examples
+        MLP single = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+        for (int epoch = 0; epoch < warmupEpochs; epoch++) {
+            perExampleEpoch(single, trainingData, batchSize, learningRate);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int epoch = 0; epoch < measuredEpochs; epoch++) {
+            perExampleEpoch(single, trainingData, batchSize, learningRate);
+        }
+        long perExampleBytes = (threads.getCurrentThreadAllocatedBytes() - before) / measuredEpochs;
+
+        // Minibatch Trainer
+        MLP batched = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+        Trainer trainer = new Trainer(batched, batchSize, new Random(42));
+        for (int epoch = 0; epoch < warmupEpochs; epoch++) {
+            trainer.trainEpoch(trainingData, learningRate);
+        }
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int epoch = 0; epoch < measuredEpochs; epoch++) {
+            trainer.trainEpoch(trainingData, learningRate);
+        }
+        long trainerBytes = (threads.getCurrentThreadAllocatedBytes() - before) / measuredEpochs;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("AllocationExperimentResults.txt"))) {
+            writer.write("Allocation Experiment Results\n");
+            writer.write("=============================\n");
+            writer.write("Training Examples: " + trainingData.size() + "\n");
+            writer.write("Warm-up Epochs: " + warmupEpochs + "\n");
+            writer.write("Measured Epochs: " + measuredEpochs + "\n\n");
+            writer.write("Loop\tBytes Allocated Per Epoch\n");
+            writer.write("forward/backward\t" + perExampleBytes + "\n");
+            writer.write("Trainer\t" + trainerBytes + "\n");
+        }
+        System.out.println("Results saved to AllocationExperimentResults.txt");
+
+        if (perExampleBytes != 0 || trainerBytes != 0) {
+            System.err.println("Steady-state training allocated memory: forward/backward "
+                + perExampleBytes + " bytes/epoch, Trainer " + trainerBytes + " bytes/epoch");
+            System.exit(1);
+        }
+    }
+
+    // One epoch of the per-example loop in its original order
+    static double perExampleEpoch(MLP nn, ArrayList<TrainingExample> data, int batchSize, double learningRate) {
+        double error = 0;
+        for (int n = 0; n < data.size(); n++) {
+            TrainingExample example = data.get(n);
+            nn.forward(example.input);
+            error += nn.backward(example.input, example.output);
+            if ((n + 1) % batchSize == 0 || n == data.size() - 1) {
+                nn.updateWeights(learningRate);
+            }
+        }
+        return error;
+    }
+}
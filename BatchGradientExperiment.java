@@ -0,0 +1,118 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Checks that the minibatch path (forwardBatch / backwardBatch) accumulates the same weight changes
+// as calling forward and backward once per example. For each output activation, target form (one-hot
+// arrays or class indices) and batch size, one epoch of the letter training rows is run: every
+// minibatch goes through both paths from the same weights, outputs, errors and dW1 / dW2 are
+// compared, then the batch changes are applied so later batches see trained weights. Error and
+// weight change differences are relative to the batch error (at least 1) and to the largest change
+// in the batch. Exits with status 1 if any difference exceeds tolerance.
+// Results are written to BatchGradientExperimentResults.txt.
+// Usage: java BatchGradientExperiment [tolerance]
+public class BatchGradientExperiment {
+    public static void main(String[] args) throws Exception {
+        double tolerance = args.length > 0 ? Double.parseDouble(args[0]) : 1e-9;
+        ActivationFunctionType[] activations = {ActivationFunctionType.SIGMOID, ActivationFunctionType.LINEAR,
+            ActivationFunctionType.SOFTMAX};
+        int[] batchSizes = {1, 10, 100};
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        boolean failed = false;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("BatchGradientExperimentResults.txt"))) {
+            writer.write("Batch Gradient Experiment Results\n");
+            writer.write("=================================\n");
+            writer.write("Model: 16-40-26, one epoch of " + trainingData.size() + " letter training rows, learning rate 0.1 / batch, "
+                + "tolerance " + tolerance + "\n\n");
+            writer.write(String.format("%-8s %-8s %6s %14s %14s %14s %s\n", "Output", "Targets", "Batch", "Max out diff",
+                "Max err diff", "Max dW diff", "Status"));
+
+            for (ActivationFunctionType activation : activations) {
+                for (boolean labels : new boolean[] {false, true}) {
+                    for (int batchSize : batchSizes) {
+                        double[] diffs = compare(activation, labels, batchSize, trainingData);
+                        boolean ok = diffs[0] <= tolerance && diffs[1] <= tolerance && diffs[2] <= tolerance;
+                        failed |= !ok;
+                        String row = String.format("%-8s %-8s %6d %14.3e %14.3e %14.3e %s\n", activation,
+                            labels ? "labels" : "one-hot", batchSize, diffs[0], diffs[1], diffs[2], ok ? "ok" : "MISMATCH");
+                        writer.write(row);
+                        System.out.print(row);
+                    }
+                }
+            }
+        }
+        System.out.println("Results saved to BatchGradientExperimentResults.txt");
+        if (failed) {
+            System.err.println("Batch gradients differ from the per-example path");
+            System.exit(1);
+        }
+    }
+
+    // Runs one epoch through both paths and returns the largest {output, error, relative weight change} differences
+    static double[] compare(ActivationFunctionType activation, boolean labels, int batchSize,
+            ArrayList<TrainingExample> data) {
+        MLP nn = new MLP(16, 40, 26, activation, 42);
+        nn.ensureBatchCapacity(batchSize);
+        double[][] batchInputs = new double[batchSize][];
+        double[][] batchTargets = new double[batchSize][];
+        int[] batchLabels = new int[batchSize];
+        double[] dW1 = new double[nn.dW1.length];
+        double[] dW2 = new double[nn.dW2.length];
+        double[] diffs = new double[3];
+
+        for (int from = 0; from + batchSize <= data.size(); from += batchSize) {
+            for (int b = 0; b < batchSize; b++) {
+                TrainingExample example = data.get(from + b);
+                batchInputs[b] = example.input;
+                batchTargets[b] = example.output;
+                batchLabels[b] = example.label;
+            }
+
+            // Per example
+            Arrays.fill(nn.dW1, 0.0);
+            Arrays.fill(nn.dW2, 0.0);
+            double error = 0;
+            double[] outputs = new double[batchSize * nn.NO];
+            for (int b = 0; b < batchSize; b++) {
+                nn.forward(batchInputs[b]);
+                System.arraycopy(nn.O, 0, outputs, b * nn.NO, nn.NO);
+                error += labels ? nn.backward(batchInputs[b], batchLabels[b]) : nn.backward(batchInputs[b], batchTargets[b]);
+            }
+            System.arraycopy(nn.dW1, 0, dW1, 0, dW1.length);
+            System.arraycopy(nn.dW2, 0, dW2, 0, dW2.length);
+
+            // Whole batch
+            Arrays.fill(nn.dW1, 0.0);
+            Arrays.fill(nn.dW2, 0.0);
+            nn.forwardBatch(batchInputs, batchSize);
+            for (int n = 0; n < outputs.length; n++) {
+                diffs[0] = Math.max(diffs[0], Math.abs(nn.batchO[n] - outputs[n]));
+            }
+            double batchError = labels ? nn.backwardBatch(batchLabels, 0) : nn.backwardBatch(batchTargets);
+            diffs[1] = Math.max(diffs[1], Math.abs(batchError - error) / Math.max(1.0, Math.abs(error)));
+            double scale = Math.max(maxAbs(dW1), maxAbs(dW2));
+            for (int n = 0; n < dW1.length; n++) {
+                diffs[2] = Math.max(diffs[2], Math.abs(nn.dW1[n] - dW1[n]) / scale);
+            }
+            for (int n = 0; n < dW2.length; n++) {
+                diffs[2] = Math.max(diffs[2], Math.abs(nn.dW2[n] - dW2[n]) / scale);
+            }
+
+            nn.updateWeights(0.1 / batchSize);
+        }
+        return diffs;
+    }
+
+    static double maxAbs(double[] values) {
+        double max = Double.MIN_VALUE;
+        for (double v : values) {
+            max = Math.max(max, Math.abs(v));
+        }
+        return max;
+    }
+}
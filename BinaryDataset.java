@@ -0,0 +1,180 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Compact binary form of the letter recognition data, read through a memory-mapped file.
+//
+// Layout (big-endian):
+//   int magic 'LTRB', int version, int rows, int features, int classes, float divisor
+//   features block: rows * features unsigned bytes, row-major
+//   labels block:   rows unsigned bytes, the class index of each row
+//
+// A feature value is byte / divisor, so the letter attributes (integers 0-15) are stored as
+// one byte each and come back divided by 15 exactly as loadDataset normalises them.
+// Rows are decoded straight from the mapping into caller buffers; nothing is copied onto the heap.
+// The file is mapped in one piece, which limits it to 2 GB (about 120 million rows).
+public class BinaryDataset {
+    static final int MAGIC = 0x4C545242; // "LTRB"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    int rows, features, classes;
+    float divisor;
+    MappedByteBuffer buffer;
+    int labelOffset;
+
+    private BinaryDataset(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary letter dataset");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported dataset version " + version);
+        }
+        rows = buffer.getInt(8);
+        features = buffer.getInt(12);
+        classes = buffer.getInt(16);
+        divisor = buffer.getFloat(20);
+        labelOffset = HEADER_BYTES + rows * features;
+        if (buffer.capacity() != labelOffset + rows) {
+            throw new IOException("Dataset file is truncated or has trailing data");
+        }
+    }
+
+    // Memory-maps a file written by convert()
+    public static BinaryDataset open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            return new BinaryDataset(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Number of examples
+    public int size() {
+        return rows;
+    }
+
+    // Class index of row
+    public int label(int row) {
+        return buffer.get(labelOffset + row) & 0xFF;
+    }
+
+    // Writes the normalised features of row into input (length features)
+    public void readInput(int row, double[] input) {
+        int offset = HEADER_BYTES + row * features;
+        for (int i = 0; i < features; i++) {
+            input[i] = (buffer.get(offset + i) & 0xFF) / (double) divisor;
+        }
+    }
+
+    // Writes the one-hot target of row into target (length classes)
+    public void readTarget(int row, double[] target) {
+        Arrays.fill(target, 0.0);
+        target[label(row)] = 1.0;
+    }
+
+    // Converts a letter recognition CSV file to the binary format and returns the number of rows.
+    // The CSV is streamed, so only the labels (one byte per row) are held in memory.
+    public static int convert(String csvFilename, String binaryFilename) throws IOException {
+        int numFeatures = 16;
+        int numClasses = 26;
+        byte[] labels = new byte[1024];
+        int rows = 0;
+
+        try (BufferedReader br = new BufferedReader(new FileReader(csvFilename));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFilename), 1 << 16))) {
+            // Header; the row count is patched in once it is known
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            out.writeInt(numFeatures);
+            out.writeInt(numClasses);
+            out.writeFloat(15.0f);
+
+            int[] values = new int[numFeatures];
+            int lineNumber = 0;
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int label = parseLine(line, lineNumber, values);
+                for (int i = 0; i < numFeatures; i++) {
+                    if (values[i] < 0 || values[i] > 255) {
+                        throw new IOException("Feature value out of range on line " + lineNumber);
+                    }
+                    out.writeByte(values[i]);
+                }
+                if (rows == labels.length) {
+                    labels = Arrays.copyOf(labels, rows * 2);
+                }
+                labels[rows++] = (byte) label;
+            }
+            out.write(labels, 0, rows);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(binaryFilename, "rw")) {
+            file.seek(8);
+            file.writeInt(rows);
+        }
+        return rows;
+    }
+
+    // Parses one letter recognition CSV line without splitting it: the raw integer attributes
+    // go into values and the class index of the letter is returned. Throws an IOException naming
+    // lineNumber unless the line is a letter followed by exactly values.length integers from 0 to 255.
+    static int parseLine(String line, int lineNumber, int[] values) throws IOException {
+        int label = line.charAt(0) - 'A';
+        if (label < 0 || label >= 26 || line.length() < 2 || line.charAt(1) != ',') {
+            throw new IOException("Bad label on line " + lineNumber + ": " + line);
+        }
+        int pos = 2;
+        for (int i = 0; i < values.length; i++) {
+            if (pos > line.length()) {
+                throw new IOException("Expected " + values.length + " features on line " + lineNumber + ", found " + i);
+            }
+            int start = pos;
+            int value = 0;
+            while (pos < line.length() && line.charAt(pos) != ',') {
+                char c = line.charAt(pos);
+                if (c < '0' || c > '9') {
+                    throw new IOException("Bad character '" + c + "' in feature " + (i + 1) + " on line " + lineNumber);
+                }
+                value = value * 10 + (c - '0');
+                if (value > 255) {
+                    throw new IOException("Feature " + (i + 1) + " out of range on line " + lineNumber);
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw new IOException("Empty feature " + (i + 1) + " on line " + lineNumber);
+            }
+            pos++;
+            values[i] = value;
+        }
+        if (pos <= line.length()) {
+            throw new IOException("More than " + values.length + " features on line " + lineNumber);
+        }
+        return label;
+    }
+
+    // Usage: java BinaryDataset letter-recognition.data letter-recognition.bin
+    public static void main(String[] args) throws IOException {
+        String csv = args.length > 0 ? args[0] : "letter-recognition.data";
+        String binary = args.length > 1 ? args[1] : "letter-recognition.bin";
+        int rows = convert(csv, binary);
+        System.out.println("Wrote " + rows + " rows to " + binary);
+    }
+}
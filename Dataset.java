@@ -0,0 +1,16 @@
+// A source of training examples that is read through once per epoch.
+// Implementations may reorder examples between epochs and need not hold them all in memory.
+public interface Dataset {
+    // Number of input values per example
+    int numInputs();
+
+    // Number of target values per example
+    int numOutputs();
+
+    // Starts a new epoch from the beginning of the data
+    void reset();
+
+    // Copies the next example of the epoch into input and target.
+    // Returns false, leaving both untouched, once the epoch is finished.
+    boolean next(double[] input, double[] target);
+}
@@ -0,0 +1,134 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Compares LetterRecognitionExperiment.loadDataset against the memory-mapped BinaryDataset:
+// load time and heap retained after loading, on the real data and on a synthetic file. Then trains
+// one epoch straight from the binary letter data with Trainer.trainEpoch(BinaryDataset), and checks
+// that a model of the wrong shape is refused; exits with status 1 if it is not.
+// Usage: java DatasetLoadExperiment [syntheticRows]
+public class DatasetLoadExperiment {
+    public static void main(String[] args) throws IOException {
+        int syntheticRows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        boolean shapeRejected;
+
+        File synthetic = File.createTempFile("letter-synthetic", ".data");
+        synthetic.deleteOnExit();
+        writeSyntheticData(synthetic.getPath(), syntheticRows, new Random(42));
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("DatasetLoadExperimentResults.txt"))) {
+            writer.write("Dataset Load Experiment Results\n");
+            writer.write("===============================\n");
+            writer.write("Max Heap: " + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB\n\n");
+            writer.write("File\tRows\tLoader\tSeconds\tHeap Retained (MB)\tFile Size (MB)\n");
+            compare(writer, "letter-recognition.data", "letter-recognition.data");
+            compare(writer, "synthetic", synthetic.getPath());
+            shapeRejected = trainFromBinary(writer, "letter-recognition.data");
+            System.out.println("Results saved to DatasetLoadExperimentResults.txt");
+        }
+        if (!shapeRejected) {
+            System.err.println("Trainer accepted a BinaryDataset that does not match the model");
+            System.exit(1);
+        }
+    }
+
+    // One epoch of a 16-40-26 model from the binary form of csvFilename, then a 16-40-20 model that must be refused
+    static boolean trainFromBinary(BufferedWriter writer, String csvFilename) throws IOException {
+        File binary = File.createTempFile("letter", ".bin");
+        binary.deleteOnExit();
+        BinaryDataset.convert(csvFilename, binary.getPath());
+        BinaryDataset data = BinaryDataset.open(binary.getPath());
+
+        MLP nn = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+        Trainer trainer = new Trainer(nn, 10, new Random(42));
+        long start = System.nanoTime();
+        double error = trainer.trainEpoch(data, 0.1);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        writer.write(String.format("\nOne epoch from BinaryDataset: %d rows in %.3f s, mean error %.4f\n", data.size(),
+            seconds, error / data.size()));
+
+        boolean rejected;
+        try {
+            new Trainer(new MLP(16, 40, 20, ActivationFunctionType.SOFTMAX, 42), 10, new Random(42)).trainEpoch(data, 0.1);
+            rejected = false;
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        writer.write("16-40-20 model on the 26-class data: " + (rejected ? "rejected" : "NOT rejected") + "\n");
+        return rejected;
+    }
+
+    // Measures both loaders on one CSV file
+    static void compare(BufferedWriter writer, String name, String csvFilename) throws IOException {
+        long csvBytes = new File(csvFilename).length();
+
+        // Text loader: every row becomes a TrainingExample on the heap
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        String csvResult;
+        try {
+            ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset(csvFilename);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long retained = usedHeap() - heapBefore;
+            csvResult = String.format("%d\tloadDataset\t%.3f\t%.1f\t%.1f", dataset.size(), seconds, retained / 1048576.0, csvBytes / 1048576.0);
+        } catch (OutOfMemoryError e) {
+            csvResult = "-\tloadDataset\tOutOfMemoryError\t-\t" + String.format("%.1f", csvBytes / 1048576.0);
+        }
+        writer.write(name + "\t" + csvResult + "\n");
+
+        // One-off conversion, then the memory-mapped loader
+        File binary = File.createTempFile("letter", ".bin");
+        binary.deleteOnExit();
+        start = System.nanoTime();
+        BinaryDataset.convert(csvFilename, binary.getPath());
+        double convertSeconds = (System.nanoTime() - start) / 1e9;
+
+        heapBefore = usedHeap();
+        start = System.nanoTime();
+        BinaryDataset data = BinaryDataset.open(binary.getPath());
+        double openSeconds = (System.nanoTime() - start) / 1e9;
+        long retained = usedHeap() - heapBefore;
+
+        // Touch every row once so the page-in cost is visible too
+        double[] input = new double[data.features];
+        double checksum = 0;
+        start = System.nanoTime();
+        for (int row = 0; row < data.size(); row++) {
+            data.readInput(row, input);
+            checksum += input[0] + data.label(row);
+        }
+        double scanSeconds = (System.nanoTime() - start) / 1e9;
+
+        writer.write(String.format("%s\t%d\tconvert\t%.3f\t-\t%.1f\n", name, data.size(), convertSeconds, binary.length() / 1048576.0));
+        writer.write(String.format("%s\t%d\tBinaryDataset.open\t%.6f\t%.1f\t%.1f\n", name, data.size(), openSeconds, retained / 1048576.0, binary.length() / 1048576.0));
+        writer.write(String.format("%s\t%d\tfirst full scan\t%.3f\t-\t- (checksum %.1f)\n", name, data.size(), scanSeconds, checksum));
+    }
+
+    // Writes rows random examples in the letter recognition CSV format
+    static void writeSyntheticData(String filename, int rows, Random rand) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            StringBuilder line = new StringBuilder();
+            for (int row = 0; row < rows; row++) {
+                line.setLength(0);
+                line.append((char) ('A' + rand.nextInt(26)));
+                for (int i = 0; i < 16; i++) {
+                    line.append(',').append(rand.nextInt(16));
+                }
+                line.append('\n');
+                out.write(line.toString());
+            }
+        }
+    }
+
+    // Heap in use after asking for a collection
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
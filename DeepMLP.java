@@ -0,0 +1,142 @@
+import java.util.Random;
+
+// Multi-layer perceptron with any number of dense layers.
+// sizes lists the width of every layer starting with the inputs, e.g. {16, 64, 32, 26}, and
+// activations gives one ActivationFunctionType per weight layer (sizes.length - 1 of them).
+// SOFTMAX is only allowed on the last layer. With sizes {NI, NH, NO}, activations
+// {SIGMOID, output} and no bias this is exactly the network MLP implements, and fromMLP()
+// copies an MLP's weights so the two produce the same outputs.
+public class DeepMLP {
+    int NI, NO; // Number of inputs and outputs
+    DenseLayer[] layers;
+    ActivationFunctionType outputActivation;
+
+    int batchCapacity;
+    int batchSize; // rows filled by the last forward or forwardBatch call
+    double[] batchX; // inputs of the current minibatch, one row of NI values per example
+    double[] O; // outputs of the last layer; row b is O[b * NO .. b * NO + NO), so O[k] after forward()
+    double[][] single = new double[1][]; // wraps one example for forward() and backward()
+
+    public DeepMLP(int[] sizes, ActivationFunctionType[] activations, boolean useBias, Random rand) {
+        if (sizes.length < 2 || activations.length != sizes.length - 1) {
+            throw new IllegalArgumentException("Need at least two layer sizes and one activation per weight layer");
+        }
+        NI = sizes[0];
+        NO = sizes[sizes.length - 1];
+        outputActivation = activations[activations.length - 1];
+        layers = new DenseLayer[activations.length];
+        for (int l = 0; l < layers.length; l++) {
+            if (activations[l] == ActivationFunctionType.SOFTMAX && l != layers.length - 1) {
+                throw new IllegalArgumentException("SOFTMAX can only be used on the output layer");
+            }
+            layers[l] = new DenseLayer(sizes[l], sizes[l + 1], activations[l], useBias);
+            layers[l].randomise(rand);
+        }
+        ensureBatchCapacity(1);
+    }
+
+    // The single-hidden-layer network of MLP, with the same weights as nn
+    public static DeepMLP fromMLP(MLP nn) {
+        DeepMLP deep = new DeepMLP(new int[] {nn.NI, nn.NH, nn.NO},
+            new ActivationFunctionType[] {ActivationFunctionType.SIGMOID, nn.outputActivation}, false, new Random());
+        System.arraycopy(nn.W1, 0, deep.layers[0].W, 0, nn.W1.length);
+        System.arraycopy(nn.W2, 0, deep.layers[1].W, 0, nn.W2.length);
+        return deep;
+    }
+
+    // Forward propagation of one example; the result is in O[0 .. NO)
+    public void forward(double[] input) {
+        single[0] = input;
+        forwardBatch(single, 0, 1);
+    }
+
+    // Backward propagation of the example passed to the last forward() call
+    public double backward(double[] input, double[] target) {
+        single[0] = target;
+        return backwardBatch(single, 0);
+    }
+
+    // Forward propagation of the first count rows of inputs
+    public void forwardBatch(double[][] inputs, int count) {
+        forwardBatch(inputs, 0, count);
+    }
+
+    // Forward propagation of rows from .. from + count of inputs
+    public void forwardBatch(double[][] inputs, int from, int count) {
+        ensureBatchCapacity(count);
+        batchSize = count;
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(inputs[from + b], 0, batchX, b * NI, NI);
+        }
+        double[] x = batchX;
+        for (DenseLayer layer : layers) {
+            layer.forward(x, count);
+            x = layer.A;
+        }
+    }
+
+    // Backward propagation of the minibatch passed to the last forwardBatch call
+    public double backwardBatch(double[][] targets) {
+        return backwardBatch(targets, 0);
+    }
+
+    // Same as above when the minibatch was taken from row from of the input matrix
+    public double backwardBatch(double[][] targets, int from) {
+        int count = batchSize;
+        DenseLayer top = layers[layers.length - 1];
+        double error = 0.0;
+
+        // Output layer error terms; softmax is paired with cross-entropy, everything else with squared error
+        for (int b = 0; b < count; b++) {
+            double[] target = targets[from + b];
+            int row = b * NO;
+            for (int k = 0; k < NO; k++) {
+                double y = O[row + k];
+                double diff = y - target[k];
+                if (outputActivation == ActivationFunctionType.SOFTMAX) {
+                    top.delta[row + k] = diff;
+                    error -= target[k] * Math.log(y);
+                } else {
+                    top.delta[row + k] = diff * top.derivative(y);
+                    error += 0.5 * diff * diff;
+                }
+            }
+        }
+
+        for (int l = layers.length - 1; l >= 0; l--) {
+            if (l > 0) {
+                layers[l].propagate(layers[l - 1], count);
+            }
+            layers[l].accumulate(l > 0 ? layers[l - 1].A : batchX, count);
+        }
+        return error;
+    }
+
+    // Update weights with accumulated updates
+    public void updateWeights(double learningRate) {
+        for (DenseLayer layer : layers) {
+            layer.updateWeights(learningRate);
+        }
+    }
+
+    // Same as above with an update rule other than plain gradient descent; layer l uses slots 2l and 2l + 1
+    public void updateWeights(Optimizer optimizer, double learningRate) {
+        optimizer.beginStep();
+        for (int l = 0; l < layers.length; l++) {
+            layers[l].updateWeights(optimizer, 2 * l, learningRate);
+        }
+    }
+
+    // Grows every layer's buffers so they hold at least count rows
+    void ensureBatchCapacity(int count) {
+        if (count <= batchCapacity) {
+            return;
+        }
+        batchCapacity = count;
+        batchX = new double[count * NI];
+        for (DenseLayer layer : layers) {
+            layer.ensureCapacity(count);
+        }
+        O = layers[layers.length - 1].A;
+    }
+}
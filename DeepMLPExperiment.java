@@ -0,0 +1,120 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+// Letter recognition with a deeper DeepMLP, plus a check that DeepMLP reproduces MLP.
+//   1. Equivalence: a trained 16-40-26 MLP is copied with DeepMLP.fromMLP and both are run on
+//      every test row. Exits with status 1 if any output differs by more than tolerance.
+//   2. Training: a 16-256-256-26 network with ReLU hidden layers, bias and a softmax output is
+//      trained with minibatch gradient descent. Reports seconds and test accuracy per epoch and
+//      the fraction of hidden activations that are exactly zero on the test set.
+// Results are written to DeepMLPExperimentResults.txt.
+// Usage: java DeepMLPExperiment [epochs] [learningRate] [tolerance]
+public class DeepMLPExperiment {
+    public static void main(String[] args) throws Exception {
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        double learningRate = args.length > 1 ? Double.parseDouble(args[1]) : 0.01;
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 1e-9;
+        int batchSize = 10;
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+        boolean failed;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("DeepMLPExperimentResults.txt"))) {
+            writer.write("DeepMLP Experiment Results\n");
+            writer.write("==========================\n\n");
+
+            // fromMLP must give the same outputs as the MLP it was built from
+            MLP nn = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+            Trainer trainer = new Trainer(nn, batchSize, new Random(42));
+            for (int epoch = 0; epoch < 5; epoch++) {
+                trainer.trainEpoch(trainingData, 0.1);
+            }
+            DeepMLP copy = DeepMLP.fromMLP(nn);
+            double maxDiff = 0;
+            for (TrainingExample example : testData) {
+                nn.forward(example.input);
+                copy.forward(example.input);
+                for (int k = 0; k < nn.NO; k++) {
+                    maxDiff = Math.max(maxDiff, Math.abs(nn.O[k] - copy.O[k]));
+                }
+            }
+            failed = !(maxDiff <= tolerance);
+            writer.write(String.format("fromMLP vs MLP (16-40-26 SOFTMAX, 5 epochs), %d test rows: max output difference %.3e"
+                + " (tolerance %.1e) %s\n\n", testData.size(), maxDiff, tolerance, failed ? "MISMATCH" : "ok"));
+
+            // 16-256-256-26 ReLU network
+            int[] sizes = {16, 256, 256, 26};
+            ActivationFunctionType[] activations = {ActivationFunctionType.RELU, ActivationFunctionType.RELU,
+                ActivationFunctionType.SOFTMAX};
+            DeepMLP deep = new DeepMLP(sizes, activations, true, new Random(42));
+            writer.write("16-256-256-26 RELU/RELU/SOFTMAX with bias, batch " + batchSize + ", learning rate " + learningRate + "\n");
+            writer.write(String.format("%6s %10s %14s %12s\n", "Epoch", "Seconds", "Train error", "Test acc %"));
+
+            Random rand = new Random(42);
+            ArrayList<TrainingExample> order = new ArrayList<>(trainingData);
+            double[][] batchInputs = new double[batchSize][];
+            double[][] batchTargets = new double[batchSize][];
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                long start = System.nanoTime();
+                Collections.shuffle(order, rand);
+                double error = 0;
+                for (int from = 0; from < order.size(); from += batchSize) {
+                    int count = Math.min(batchSize, order.size() - from);
+                    for (int b = 0; b < count; b++) {
+                        batchInputs[b] = order.get(from + b).input;
+                        batchTargets[b] = order.get(from + b).output;
+                    }
+                    deep.forwardBatch(batchInputs, count);
+                    error += deep.backwardBatch(batchTargets);
+                    deep.updateWeights(learningRate);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                String row = String.format("%6d %10.2f %14.4f %12.2f\n", epoch, seconds, error / order.size(),
+                    accuracy(deep, testData));
+                writer.write(row);
+                writer.flush();
+                System.out.print(row);
+            }
+
+            // Share of hidden ReLU outputs that are exactly zero, which the zero-skipping kernels exploit
+            long zeros = 0;
+            long total = 0;
+            for (TrainingExample example : testData) {
+                deep.forward(example.input);
+                for (int l = 0; l < deep.layers.length - 1; l++) {
+                    DenseLayer layer = deep.layers[l];
+                    for (int j = 0; j < layer.out; j++) {
+                        zeros += layer.A[j] == 0.0 ? 1 : 0;
+                    }
+                    total += layer.out;
+                }
+            }
+            writer.write(String.format("Zero hidden activations on the test set: %.1f%%\n", 100.0 * zeros / total));
+        }
+        System.out.println("Results saved to DeepMLPExperimentResults.txt");
+        if (failed) {
+            System.err.println("DeepMLP.fromMLP outputs differ from MLP");
+            System.exit(1);
+        }
+    }
+
+    // Percentage of examples whose largest output is at the target class
+    static double accuracy(DeepMLP nn, ArrayList<TrainingExample> data) {
+        int correct = 0;
+        double[] output = new double[nn.NO];
+        for (TrainingExample example : data) {
+            nn.forward(example.input);
+            System.arraycopy(nn.O, 0, output, 0, nn.NO);
+            if (MLP.argMax(output) == MLP.argMax(example.output)) {
+                correct++;
+            }
+        }
+        return 100.0 * correct / data.size();
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// One fully connected layer of a DeepMLP.
+// The layer owns its weights, bias, weight changes and the minibatch buffers for its outputs and
+// error terms. forward() handles one example row at a time in a single fused pass: the row starts
+// from the bias, every input adds its scaled weight row, and the activation is applied while the
+// row is still in cache. Activation derivatives are taken from the outputs, so no
+// pre-activation buffer is kept.
+class DenseLayer {
+    int in, out; // Number of inputs and units
+    ActivationFunctionType activation;
+    boolean useBias;
+    double[] W, dW; // Weights and weight changes, row-major: W[i * out + j]
+    double[] b, db; // Bias and bias changes
+    double[] A, delta; // Outputs and error terms, one row of out values per example
+    int capacity;
+
+    DenseLayer(int numInputs, int numUnits, ActivationFunctionType activation, boolean useBias) {
+        in = numInputs;
+        out = numUnits;
+        this.activation = activation;
+        this.useBias = useBias;
+        W = new double[in * out];
+        dW = new double[in * out];
+        b = new double[out];
+        db = new double[out];
+    }
+
+    // Small random weights and zero bias. Sigmoid, linear and softmax layers draw from [-1, 1) as
+    // MLP.randomise does; ReLU and tanh layers use the He and Glorot ranges, which scale with fan-in
+    // so deep stacks of them neither saturate nor blow up.
+    void randomise(Random rand) {
+        double range = 1.0;
+        if (activation == ActivationFunctionType.RELU) {
+            range = Math.sqrt(6.0 / in);
+        } else if (activation == ActivationFunctionType.TANH) {
+            range = Math.sqrt(6.0 / (in + out));
+        }
+        for (int n = 0; n < W.length; n++) {
+            W[n] = rand.nextDouble() * 2 * range - range;
+            dW[n] = 0.0;
+        }
+        Arrays.fill(b, 0.0);
+        Arrays.fill(db, 0.0);
+    }
+
+    // Grows the output and error buffers so they hold at least count rows
+    void ensureCapacity(int count) {
+        if (count <= capacity) {
+            return;
+        }
+        capacity = count;
+        A = new double[count * out];
+        delta = new double[count * out];
+    }
+
+    // A = activation(x * W + b) for the first count rows of x
+    void forward(double[] x, int count) {
+        for (int r = 0; r < count; r++) {
+            int inRow = r * in;
+            int outRow = r * out;
+            if (useBias) {
+                System.arraycopy(b, 0, A, outRow, out);
+            } else {
+                Arrays.fill(A, outRow, outRow + out, 0.0);
+            }
+            for (int i = 0; i < in; i++) {
+                if (x[inRow + i] != 0.0) { // zero inputs, e.g. from ReLU, add nothing
+                    Kernels.KERNELS.axpy(x[inRow + i], W, i * out, A, outRow, out);
+                }
+            }
+            activate(outRow);
+        }
+    }
+
+    // Applies the activation function to one row of A in place
+    private void activate(int offset) {
+        if (activation == ActivationFunctionType.SIGMOID) {
+            for (int j = offset; j < offset + out; j++) {
+                A[j] = MLP.sigmoid(A[j]);
+            }
+        } else if (activation == ActivationFunctionType.RELU) {
+            for (int j = offset; j < offset + out; j++) {
+                A[j] = Math.max(0.0, A[j]);
+            }
+        } else if (activation == ActivationFunctionType.TANH) {
+            for (int j = offset; j < offset + out; j++) {
+                A[j] = FastActivations.ENABLED ? FastActivations.tanh(A[j]) : Math.tanh(A[j]);
+            }
+        } else if (activation == ActivationFunctionType.SOFTMAX) {
+            MLP.softmax(A, A, offset, out);
+        }
+    }
+
+    // Derivative of the activation function expressed in terms of its output y
+    double derivative(double y) {
+        if (activation == ActivationFunctionType.SIGMOID) {
+            return MLP.sigmoidDerivative(y);
+        } else if (activation == ActivationFunctionType.RELU) {
+            return y > 0.0 ? 1.0 : 0.0;
+        } else if (activation == ActivationFunctionType.TANH) {
+            return 1.0 - y * y;
+        }
+        return 1.0;
+    }
+
+    // Given delta for the first count rows, accumulates dW += x^T * delta and db += column sums of delta
+    void accumulate(double[] x, int count) {
+        MatrixKernels.gemmTransA(x, delta, dW, in, count, out);
+        if (useBias) {
+            for (int r = 0; r < count; r++) {
+                Kernels.KERNELS.axpy(1.0, delta, r * out, db, 0, out);
+            }
+        }
+    }
+
+    // Error terms of the layer below: below.delta = (delta * W^T) .* below.derivative(below.A)
+    void propagate(DenseLayer below, int count) {
+        Arrays.fill(below.delta, 0, count * in, 0.0);
+        MatrixKernels.gemmTransB(delta, W, below.delta, count, out, in);
+        for (int n = 0; n < count * in; n++) {
+            below.delta[n] *= below.derivative(below.A[n]);
+        }
+    }
+
+    // Gradient descent step with the accumulated changes, which are then reset
+    void updateWeights(double learningRate) {
+        for (int n = 0; n < W.length; n++) {
+            W[n] -= learningRate * dW[n];
+            dW[n] = 0.0;
+        }
+        if (useBias) {
+            for (int j = 0; j < out; j++) {
+                b[j] -= learningRate * db[j];
+                db[j] = 0.0;
+            }
+        }
+    }
+
+    // Same as above through an optimizer; the weights use slot, the bias slot + 1
+    void updateWeights(Optimizer optimizer, int slot, double learningRate) {
+        optimizer.step(slot, W, dW, learningRate);
+        if (useBias) {
+            optimizer.step(slot + 1, b, db, learningRate);
+        }
+    }
+}
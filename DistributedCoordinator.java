@@ -0,0 +1,227 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.List;
+
+// Coordinates data-parallel training of an MLP across DistributedWorker processes by parameter averaging.
+//
+// Every worker holds a replica of the model and trains on its own shard of the data (the rows whose
+// index modulo the worker count is its index). In each round every worker runs syncEvery minibatch
+// updates from the last synchronized weights and sends back its weight change. The coordinator
+// averages the changes, adds the average to its own copy and sends it to every worker, which adds it
+// to the same starting weights, so all replicas leave the round identical. syncEvery = 1 averages
+// after every minibatch (synchronous training), larger values trade staleness for fewer messages.
+// With float16 the changes travel as IEEE half floats. The average is rounded to half before anyone
+// applies it, so the replicas still stay identical.
+//
+// Protocol (big-endian, as DataInput/DataOutputStream; weight arrays are W1 then W2, row-major):
+//   on connect the coordinator sends  int MAGIC, int worker index, int workers, int NI, int NH, int NO,
+//       int outputActivation ordinal, int batchSize, int syncEvery, double learningRate,
+//       boolean float16, then W1 and W2 as doubles
+//   worker replies                   int rows in its shard (the coordinator gives up if any is 0)
+//   each round:  coordinator sends   int TRAIN (or STOP to end)
+//                worker replies      int examples, double summed error, long train nanos, weight changes
+//                coordinator sends   the averaged weight changes
+// Weight changes are NI * NH + NH * NO doubles, or shorts with float16.
+public class DistributedCoordinator implements AutoCloseable {
+    static final int MAGIC = 0x4D4C5044; // "MLPD"
+    static final int TRAIN = 1;
+    static final int STOP = 0;
+    static final int ACCEPT_POLL_MILLIS = 200; // how often accept() checks the worker processes
+
+    MLP nn;
+    int workers, batchSize, syncEvery;
+    double learningRate;
+    boolean float16;
+    ServerSocket serverSocket;
+    Socket[] sockets;
+    DataInputStream[] in;
+    DataOutputStream[] out;
+    double[] delta, sum; // one worker's weight changes, and their sum then average
+
+    // Statistics of the rounds run so far
+    long rounds, examples, bytesSent, bytesReceived;
+    long roundNanos, maxTrainNanos; // wall time of all rounds, and the sum over rounds of the slowest worker's training time
+    double lastError; // summed error over all workers in the last round
+
+    // Binds to port on the loopback interface (0 picks a free port); call accept() once the workers are started
+    public DistributedCoordinator(MLP nn, int port, int workers, int batchSize, double learningRate, int syncEvery,
+            boolean float16) throws IOException {
+        if (workers < 1 || batchSize < 1 || syncEvery < 1) {
+            throw new IllegalArgumentException("workers, batchSize and syncEvery must be at least 1");
+        }
+        this.nn = nn;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.learningRate = learningRate;
+        this.syncEvery = syncEvery;
+        this.float16 = float16;
+        delta = new double[nn.W1.length + nn.W2.length];
+        sum = new double[delta.length];
+        sockets = new Socket[workers];
+        in = new DataInputStream[workers];
+        out = new DataOutputStream[workers];
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Waits for every worker to connect, sends each its index, the settings and the current weights,
+    // and checks that every shard has rows. Throws an IOException if one of processes (the locally
+    // started workers, may be empty) exits first or if not all have connected within timeoutMillis.
+    public void accept(List<Process> processes, long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        serverSocket.setSoTimeout(ACCEPT_POLL_MILLIS);
+        for (int w = 0; w < workers; w++) {
+            Socket socket = null;
+            while (socket == null) {
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketTimeoutException e) {
+                    for (Process process : processes) {
+                        if (!process.isAlive()) {
+                            throw new IOException("Worker process exited with status " + process.exitValue()
+                                + " while waiting for workers (" + w + " of " + workers + " connected)");
+                        }
+                    }
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new IOException("Timed out waiting for workers (" + w + " of " + workers + " connected)");
+                    }
+                }
+            }
+            socket.setTcpNoDelay(true);
+            sockets[w] = socket;
+            in[w] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out[w] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataOutputStream o = out[w];
+            o.writeInt(MAGIC);
+            o.writeInt(w);
+            o.writeInt(workers);
+            o.writeInt(nn.NI);
+            o.writeInt(nn.NH);
+            o.writeInt(nn.NO);
+            o.writeInt(nn.outputActivation.ordinal());
+            o.writeInt(batchSize);
+            o.writeInt(syncEvery);
+            o.writeDouble(learningRate);
+            o.writeBoolean(float16);
+            for (double v : nn.W1) {
+                o.writeDouble(v);
+            }
+            for (double v : nn.W2) {
+                o.writeDouble(v);
+            }
+            o.flush();
+        }
+        for (int w = 0; w < workers; w++) {
+            if (in[w].readInt() == 0) {
+                throw new IOException("Worker " + w + " has no training rows: fewer rows than " + workers + " workers");
+            }
+        }
+    }
+
+    // Runs one round on every worker and applies the averaged weight changes to nn
+    public void round() throws IOException {
+        long start = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            out[w].writeInt(TRAIN);
+            out[w].flush();
+        }
+        bytesSent += 4L * workers;
+
+        Arrays.fill(sum, 0.0);
+        double error = 0;
+        long slowest = 0;
+        for (int w = 0; w < workers; w++) {
+            examples += in[w].readInt();
+            error += in[w].readDouble();
+            slowest = Math.max(slowest, in[w].readLong());
+            bytesReceived += 20 + readArray(in[w], delta, float16);
+            for (int n = 0; n < sum.length; n++) {
+                sum[n] += delta[n];
+            }
+        }
+        for (int n = 0; n < sum.length; n++) {
+            sum[n] /= workers;
+        }
+        if (float16) {
+            roundToHalf(sum);
+        }
+
+        for (int w = 0; w < workers; w++) {
+            bytesSent += writeArray(out[w], sum, float16);
+            out[w].flush();
+        }
+        applyChanges(nn, sum);
+        lastError = error;
+        maxTrainNanos += slowest;
+        roundNanos += System.nanoTime() - start;
+        rounds++;
+    }
+
+    // Tells the workers to exit and closes every connection
+    @Override
+    public void close() throws IOException {
+        for (int w = 0; w < workers; w++) {
+            if (out[w] != null) {
+                try {
+                    out[w].writeInt(STOP);
+                    out[w].flush();
+                } catch (IOException e) {
+                    // worker already gone
+                }
+                sockets[w].close();
+            }
+        }
+        serverSocket.close();
+    }
+
+    // Adds changes (W1 then W2) to the weights of nn
+    static void applyChanges(MLP nn, double[] changes) {
+        int n1 = nn.W1.length;
+        for (int n = 0; n < n1; n++) {
+            nn.W1[n] += changes[n];
+        }
+        for (int n = 0; n < nn.W2.length; n++) {
+            nn.W2[n] += changes[n1 + n];
+        }
+    }
+
+    // Replaces every value by its nearest float16 value, as if it had been sent with writeArray
+    static void roundToHalf(double[] values) {
+        for (int n = 0; n < values.length; n++) {
+            values[n] = Float16.toFloat(Float16.fromFloat((float) values[n]));
+        }
+    }
+
+    // Writes values as doubles or as halves, returning the bytes written
+    static int writeArray(DataOutputStream out, double[] values, boolean float16) throws IOException {
+        for (double v : values) {
+            if (float16) {
+                out.writeShort(Float16.fromFloat((float) v));
+            } else {
+                out.writeDouble(v);
+            }
+        }
+        return values.length * (float16 ? 2 : 8);
+    }
+
+    // Reads values written by writeArray, returning the bytes read
+    static int readArray(DataInputStream in, double[] values, boolean float16) throws IOException {
+        for (int n = 0; n < values.length; n++) {
+            values[n] = float16 ? Float16.toFloat(in.readShort()) : in.readDouble();
+        }
+        return values.length * (float16 ? 2 : 8);
+    }
+}
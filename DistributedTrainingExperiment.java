@@ -0,0 +1,124 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Scaling of distributed letter recognition training over localhost TCP.
+// For each setting a DistributedCoordinator is started in this JVM and the workers are launched as
+// separate JVMs with the same options and class path. They train for the same number of epochs,
+// an epoch being one pass's worth of examples summed over all workers. Reports training throughput,
+// scaling efficiency against one worker (throughput / (workers * one-worker throughput)), bytes on
+// the wire per worker per round, the share of round time not spent in the slowest worker's training
+// (messages, averaging, waiting), and test accuracy.
+// Results go to DistributedTrainingExperimentResults.txt.
+// Usage: java DistributedTrainingExperiment [epochs] [maxWorkers] [syncEvery]
+public class DistributedTrainingExperiment {
+    public static void main(String[] args) throws Exception {
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int syncEvery = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int batchSize = 10;
+        double learningRate = 0.1;
+
+        // {workers, syncEvery, float16}
+        List<int[]> settings = new ArrayList<>();
+        for (int float16 = 0; float16 <= 1; float16++) {
+            for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+                settings.add(new int[] {workers, syncEvery, float16});
+            }
+            settings.add(new int[] {maxWorkers, 1, float16});
+        }
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("DistributedTrainingExperimentResults.txt"))) {
+            writer.write("Distributed Training Experiment Results\n");
+            writer.write("=======================================\n");
+            MLP initial = newModel();
+            writer.write("Model: " + initial.NI + "-" + initial.NH + "-" + initial.NO + " " + initial.outputActivation
+                + ", batch " + batchSize + ", learning rate " + learningRate + ", " + epochs
+                + " epochs of " + trainingSamples + " examples\n");
+            writer.write("Workers are separate JVMs on localhost, processors: " + Runtime.getRuntime().availableProcessors() + "\n\n");
+            writer.write(String.format("%7s %5s %8s %8s %12s %10s %14s %8s %10s\n", "Workers", "Sync", "Format",
+                "Rounds", "Examples/s", "Efficiency", "Bytes/round", "Comm %", "Test acc %"));
+
+            double[] baseline = new double[2]; // one-worker throughput per format
+            for (int[] setting : settings) {
+                int workers = setting[0];
+                int sync = setting[1];
+                boolean float16 = setting[2] == 1;
+                MLP nn = newModel();
+                long rounds = (long) epochs * (long) Math.ceil((double) trainingSamples / (workers * batchSize * sync));
+
+                List<Process> processes = new ArrayList<>();
+                double seconds;
+                DistributedCoordinator coordinator =
+                    new DistributedCoordinator(nn, 0, workers, batchSize, learningRate, sync, float16);
+                try {
+                    for (int w = 0; w < workers; w++) {
+                        processes.add(startWorker(coordinator.port()));
+                    }
+                    coordinator.accept(processes, 120_000);
+                    long start = System.nanoTime();
+                    for (long r = 0; r < rounds; r++) {
+                        coordinator.round();
+                    }
+                    seconds = (System.nanoTime() - start) / 1e9;
+                } finally {
+                    coordinator.close();
+                    // Workers exit on STOP or when their connection closes; kill any that do not
+                    for (Process process : processes) {
+                        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                            process.destroyForcibly();
+                        }
+                    }
+                }
+                for (Process process : processes) {
+                    if (process.waitFor() != 0) {
+                        throw new IllegalStateException("Worker exited with status " + process.exitValue());
+                    }
+                }
+
+                double rate = coordinator.examples / seconds;
+                if (workers == 1 && sync == syncEvery) {
+                    baseline[setting[2]] = rate;
+                }
+                double efficiency = baseline[setting[2]] > 0 ? rate / (workers * baseline[setting[2]]) : Double.NaN;
+                double bytesPerRound = (double) (coordinator.bytesSent + coordinator.bytesReceived) / (rounds * workers);
+                double comm = 100.0 * (coordinator.roundNanos - coordinator.maxTrainNanos) / coordinator.roundNanos;
+                String row = String.format("%7d %5d %8s %8d %12.0f %10.2f %14.0f %8.1f %10.2f\n", workers, sync,
+                    float16 ? "float16" : "float64", rounds, rate, efficiency, bytesPerRound, comm,
+                    LetterRecognitionExperiment.accuracy(nn, testData));
+                writer.write(row);
+                writer.flush();
+                System.out.print(row);
+            }
+        }
+        System.out.println("Results saved to DistributedTrainingExperimentResults.txt");
+    }
+
+    // Every setting starts from the same weights
+    static MLP newModel() {
+        return new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+    }
+
+    // Launches a DistributedWorker JVM with this JVM's options and class path
+    static Process startWorker(int port) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("DistributedWorker");
+        command.add("localhost");
+        command.add(Integer.toString(port));
+        return new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+}
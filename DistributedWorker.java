@@ -0,0 +1,139 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Random;
+
+// One worker process of DistributedCoordinator; see there for the scheme and the protocol.
+// The worker keeps a replica of the model and the weights of the last synchronization. Each round
+// it runs syncEvery minibatch updates over its shard, visited in a reshuffled order every time it
+// has been read through, and sends the change since the last synchronization.
+// Usage: java DistributedWorker [host] [port]  (trains on the letter recognition training split)
+public class DistributedWorker {
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7879;
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        run(host, port, new ArrayList<>(dataset.subList(0, trainingSamples)));
+    }
+
+    // Connects to the coordinator and trains on this worker's shard of data until told to stop
+    public static void run(String host, int port, ArrayList<TrainingExample> data) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != DistributedCoordinator.MAGIC) {
+                throw new IOException("Not a training coordinator at " + host + ":" + port);
+            }
+            int index = in.readInt();
+            int workers = in.readInt();
+            int NI = in.readInt();
+            int NH = in.readInt();
+            int NO = in.readInt();
+            ActivationFunctionType outputActivation = ActivationFunctionType.values()[in.readInt()];
+            int batchSize = in.readInt();
+            int syncEvery = in.readInt();
+            double learningRate = in.readDouble();
+            boolean float16 = in.readBoolean();
+
+            MLP nn = new MLP(NI, NH, NO, outputActivation);
+            for (int n = 0; n < nn.W1.length; n++) {
+                nn.W1[n] = in.readDouble();
+            }
+            for (int n = 0; n < nn.W2.length; n++) {
+                nn.W2[n] = in.readDouble();
+            }
+            nn.ensureBatchCapacity(batchSize);
+
+            // This worker's rows, visited through a reshuffled index order
+            ArrayList<TrainingExample> shard = new ArrayList<>();
+            for (int n = index; n < data.size(); n += workers) {
+                shard.add(data.get(n));
+            }
+            out.writeInt(shard.size());
+            out.flush();
+            if (shard.isEmpty()) {
+                return; // the coordinator reports the error and stops
+            }
+            int[] order = new int[shard.size()];
+            for (int n = 0; n < order.length; n++) {
+                order[n] = n;
+            }
+            Random rand = new Random(42 + index);
+            int next = order.length;
+
+            double[][] batchInputs = new double[batchSize][];
+            double[][] batchTargets = new double[batchSize][];
+            int[] batchLabels = new int[batchSize];
+            double[] synced = new double[nn.W1.length + nn.W2.length];
+            double[] changes = new double[synced.length];
+            copyWeights(nn, synced);
+
+            while (in.readInt() == DistributedCoordinator.TRAIN) {
+                long start = System.nanoTime();
+                double error = 0;
+                int examples = 0;
+                for (int update = 0; update < syncEvery; update++) {
+                    boolean labelled = true;
+                    for (int b = 0; b < batchSize; b++) {
+                        if (next == order.length) {
+                            shuffle(order, rand);
+                            next = 0;
+                        }
+                        TrainingExample example = shard.get(order[next++]);
+                        batchInputs[b] = example.input;
+                        batchTargets[b] = example.output;
+                        batchLabels[b] = example.label;
+                        labelled &= example.label >= 0;
+                    }
+                    nn.forwardBatch(batchInputs, batchSize);
+                    error += labelled ? nn.backwardBatch(batchLabels, 0) : nn.backwardBatch(batchTargets);
+                    nn.updateWeights(learningRate);
+                    examples += batchSize;
+                }
+                long trainNanos = System.nanoTime() - start;
+
+                // Send the change since the last synchronization, then move to synced + averaged change
+                copyWeights(nn, changes);
+                for (int n = 0; n < changes.length; n++) {
+                    changes[n] -= synced[n];
+                }
+                out.writeInt(examples);
+                out.writeDouble(error);
+                out.writeLong(trainNanos);
+                DistributedCoordinator.writeArray(out, changes, float16);
+                out.flush();
+
+                DistributedCoordinator.readArray(in, changes, float16);
+                setWeights(nn, synced);
+                DistributedCoordinator.applyChanges(nn, changes);
+                copyWeights(nn, synced);
+            }
+        }
+    }
+
+    // Copies W1 then W2 into weights
+    private static void copyWeights(MLP nn, double[] weights) {
+        System.arraycopy(nn.W1, 0, weights, 0, nn.W1.length);
+        System.arraycopy(nn.W2, 0, weights, nn.W1.length, nn.W2.length);
+    }
+
+    private static void setWeights(MLP nn, double[] weights) {
+        System.arraycopy(weights, 0, nn.W1, 0, nn.W1.length);
+        System.arraycopy(weights, nn.W1.length, nn.W2, 0, nn.W2.length);
+    }
+
+    private static void shuffle(int[] order, Random rand) {
+        for (int n = order.length - 1; n > 0; n--) {
+            int m = rand.nextInt(n + 1);
+            int tmp = order[n];
+            order[n] = order[m];
+            order[m] = tmp;
+        }
+    }
+}
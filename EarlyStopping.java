@@ -0,0 +1,42 @@
+// Stops training once a validation score has not improved for patience epochs, and keeps a
+// copy of the best weights seen so far so they can be put back afterwards.
+// Higher scores are better; pass a negated loss to track a loss.
+public class EarlyStopping {
+    int patience;
+    double minDelta; // smallest change that counts as an improvement
+    double bestScore = Double.NEGATIVE_INFINITY;
+    int bestEpoch = -1;
+    int epochsWithoutImprovement;
+    double[] bestW1, bestW2;
+
+    public EarlyStopping(int patience, double minDelta) {
+        this.patience = patience;
+        this.minDelta = minDelta;
+    }
+
+    // Records the score of nn after epoch and returns true when training should stop
+    public boolean update(int epoch, double score, MLP nn) {
+        if (score > bestScore + minDelta) {
+            bestScore = score;
+            bestEpoch = epoch;
+            epochsWithoutImprovement = 0;
+            if (bestW1 == null) {
+                bestW1 = new double[nn.W1.length];
+                bestW2 = new double[nn.W2.length];
+            }
+            System.arraycopy(nn.W1, 0, bestW1, 0, bestW1.length);
+            System.arraycopy(nn.W2, 0, bestW2, 0, bestW2.length);
+            return false;
+        }
+        epochsWithoutImprovement++;
+        return epochsWithoutImprovement >= patience;
+    }
+
+    // Copies the best weights seen back into nn; does nothing if update() was never called
+    public void restoreBest(MLP nn) {
+        if (bestW1 != null) {
+            System.arraycopy(bestW1, 0, nn.W1, 0, bestW1.length);
+            System.arraycopy(bestW2, 0, nn.W2, 0, bestW2.length);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Checks and measures FastActivations.
+//   1. Error: compares sigmoid, tanh and exp against the Math versions on dense grids and exits with
+//      status 1 if any maximum error exceeds the bound documented in FastActivations.
+//   2. Speed: nanoseconds per call of each function, exact and fast.
+//   3. Letter recognition: trains the same seeded network once in a child JVM per mode (the mode is
+//      a static final read at startup) and reports training time, forward throughput and test
+//      accuracy. Exits with status 1 if the fast accuracy differs from the exact one by more than
+//      tolerance percentage points.
+// Results are written to FastActivationExperimentResults.txt.
+// Usage: java FastActivationExperiment [epochs] [tolerance]
+public class FastActivationExperiment {
+    static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("train")) {
+            train(Integer.parseInt(args[1]));
+            return;
+        }
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+        boolean failed = false;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("FastActivationExperimentResults.txt"))) {
+            writer.write("Fast Activation Experiment Results\n");
+            writer.write("==================================\n\n");
+
+            // Maximum errors over grids well beyond the clamped and underflowing ranges
+            double sigmoidError = 0;
+            for (double x = -40.0; x <= 40.0; x += 1e-4) {
+                sigmoidError = Math.max(sigmoidError, Math.abs(FastActivations.sigmoid(x) - 1.0 / (1.0 + Math.exp(-x))));
+            }
+            double tanhError = 0;
+            for (double x = -20.0; x <= 20.0; x += 1e-4) {
+                tanhError = Math.max(tanhError, Math.abs(FastActivations.tanh(x) - Math.tanh(x)));
+            }
+            double expError = 0;
+            double expRelativeError = 0;
+            for (double x = -750.0; x <= 0.0; x += 1e-4) {
+                double exact = Math.exp(x);
+                double error = Math.abs(FastActivations.exp(x) - exact);
+                expError = Math.max(expError, error);
+                if (x >= -708.0) {
+                    expRelativeError = Math.max(expRelativeError, error / exact);
+                }
+            }
+            expError = Math.max(expError, Math.abs(FastActivations.exp(0.0) - 1.0));
+
+            writer.write("Maximum Error\n");
+            writer.write(String.format("%-10s %14s %14s %s\n", "Function", "Measured", "Bound", "Status"));
+            failed |= writeError(writer, "sigmoid", sigmoidError, FastActivations.SIGMOID_MAX_ERROR);
+            failed |= writeError(writer, "tanh", tanhError, FastActivations.TANH_MAX_ERROR);
+            failed |= writeError(writer, "exp", expError, FastActivations.EXP_MAX_ERROR);
+            failed |= writeError(writer, "exp (rel)", expRelativeError, FastActivations.EXP_MAX_ERROR);
+
+            // Per-call cost on arguments spread like pre-activations and shifted softmax inputs
+            Random rand = new Random(42);
+            double[] z = new double[4096];
+            double[] shifted = new double[4096];
+            for (int n = 0; n < z.length; n++) {
+                z[n] = rand.nextGaussian() * 4;
+                shifted[n] = -rand.nextDouble() * 20;
+            }
+            writer.write("\nNanoseconds Per Call\n");
+            writer.write(String.format("%-10s %10s %10s %8s\n", "Function", "Exact", "Fast", "Speedup"));
+            writeSpeed(writer, "sigmoid", time(z, x -> 1.0 / (1.0 + Math.exp(-x))), time(z, FastActivations::sigmoid));
+            writeSpeed(writer, "tanh", time(z, Math::tanh), time(z, FastActivations::tanh));
+            writeSpeed(writer, "exp", time(shifted, Math::exp), time(shifted, FastActivations::exp));
+
+            // End-to-end letter recognition, one child JVM per mode
+            writer.write("\nLetter Recognition, 16-40-26 SOFTMAX, " + epochs + " epochs\n");
+            writer.write(String.format("%-8s %14s %16s %14s\n", "Mode", "Train s", "Forward/s", "Test acc %"));
+            double[] exact = runChild(false, epochs);
+            double[] fast = runChild(true, epochs);
+            writer.write(String.format("%-8s %14.2f %16.0f %14.2f\n", "exact", exact[0], exact[1], exact[2]));
+            writer.write(String.format("%-8s %14.2f %16.0f %14.2f\n", "fast", fast[0], fast[1], fast[2]));
+            double difference = Math.abs(fast[2] - exact[2]);
+            boolean accuracyOk = difference <= tolerance;
+            writer.write(String.format("Training speedup: %.2fx, forward speedup: %.2fx\n", exact[0] / fast[0], fast[1] / exact[1]));
+            writer.write(String.format("Accuracy difference: %.2f points (tolerance %.2f) %s\n", difference, tolerance,
+                accuracyOk ? "ok" : "EXCEEDED"));
+            failed |= !accuracyOk;
+        }
+        System.out.println("Results saved to FastActivationExperimentResults.txt");
+        if (failed) {
+            System.err.println("Fast activations exceeded an error bound or the accuracy tolerance");
+            System.exit(1);
+        }
+    }
+
+    // Writes one error row and returns true if the bound was exceeded
+    static boolean writeError(BufferedWriter writer, String name, double measured, double bound) throws Exception {
+        boolean exceeded = measured > bound;
+        writer.write(String.format("%-10s %14.3e %14.3e %s\n", name, measured, bound, exceeded ? "EXCEEDED" : "ok"));
+        return exceeded;
+    }
+
+    static void writeSpeed(BufferedWriter writer, String name, double exactNanos, double fastNanos) throws Exception {
+        writer.write(String.format("%-10s %10.2f %10.2f %7.2fx\n", name, exactNanos, fastNanos, exactNanos / fastNanos));
+    }
+
+    // Best nanoseconds per call over several passes of f across xs
+    static double time(double[] xs, java.util.function.DoubleUnaryOperator f) {
+        double best = Double.MAX_VALUE;
+        for (int pass = 0; pass < 30; pass++) {
+            long start = System.nanoTime();
+            double sum = 0;
+            for (int r = 0; r < 200; r++) {
+                for (double x : xs) {
+                    sum += f.applyAsDouble(x);
+                }
+            }
+            best = Math.min(best, (System.nanoTime() - start) / (200.0 * xs.length));
+            sink = sum;
+        }
+        return best;
+    }
+
+    // Runs the train mode in a new JVM with the same options and the given activation mode,
+    // returning {training seconds, forward passes per second, test accuracy}
+    static double[] runChild(boolean fast, int epochs) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!option.startsWith("-Dmlp.fastActivations")) {
+                command.add(option);
+            }
+        }
+        command.add("-Dmlp.fastActivations=" + fast);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("FastActivationExperiment");
+        command.add("train");
+        command.add(Integer.toString(epochs));
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String line;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            line = reader.readLine();
+        }
+        if (process.waitFor() != 0 || line == null) {
+            throw new IllegalStateException("Training run with fastActivations=" + fast + " failed");
+        }
+        String[] fields = line.trim().split(" ");
+        return new double[] {Double.parseDouble(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2])};
+    }
+
+    // Child mode: trains the letter network and prints training seconds, forward passes per second and test accuracy
+    static void train(int epochs) {
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+
+        MLP nn = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+        Trainer trainer = new Trainer(nn, 10, new Random(42));
+        long start = System.nanoTime();
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            trainer.trainEpoch(trainingData, 0.1);
+        }
+        double trainSeconds = (System.nanoTime() - start) / 1e9;
+
+        double best = 0;
+        for (int pass = 0; pass < 20; pass++) {
+            long passStart = System.nanoTime();
+            double sum = 0;
+            for (TrainingExample example : testData) {
+                nn.forward(example.input);
+                sum += nn.O[0];
+            }
+            best = Math.max(best, testData.size() / ((System.nanoTime() - passStart) / 1e9));
+            sink = sum;
+        }
+        System.out.println(trainSeconds + " " + best + " " + LetterRecognitionExperiment.accuracy(nn, testData));
+    }
+}
@@ -0,0 +1,72 @@
+// Approximations of the Math.exp calls behind sigmoid, tanh and softmax.
+// Off by default; run with -Dmlp.fastActivations=true to switch MLP, MLPFloat, MLPSnapshot and
+// DenseLayer over. The choice is a static final, so the JIT drops the branch not taken.
+//
+//   sigmoid(x): linear interpolation in a table of sigmoid at steps of 1/32 over [-16, 16];
+//               inputs outside are clamped. Max absolute error SIGMOID_MAX_ERROR.
+//   tanh(x):    2 * sigmoid(2x) - 1, max absolute error TANH_MAX_ERROR.
+//   exp(x):     for x <= 0, as softmax uses it: x * log2(e) is split into an integer k and a
+//               fraction f, 2^f comes from a degree-5 polynomial fitted at Chebyshev nodes and 2^k
+//               is put straight into the exponent bits. Max absolute error EXP_MAX_ERROR, which
+//               is also the max relative error down to -708; returns 0 below that.
+// The activation derivatives are computed from the outputs and need no exp, so they are unchanged.
+// FastActivationExperiment checks these bounds on a dense grid and fails if any is exceeded.
+final class FastActivations {
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("mlp.fastActivations", "false"));
+
+    static final double SIGMOID_MAX_ERROR = 1.2e-5;
+    static final double TANH_MAX_ERROR = 2.4e-5;
+    static final double EXP_MAX_ERROR = 1.1e-7;
+
+    static final double RANGE = 16.0;
+    static final double STEPS_PER_UNIT = 32.0;
+    private static final double[] SIGMOID_TABLE = new double[(int) (2 * RANGE * STEPS_PER_UNIT) + 2]; // last entry pads n + 1
+
+    // 2^f ~ P0 + P1 f + ... + P5 f^5 for f in [0, 1)
+    private static final double P0 = 0.9999998983500241;
+    private static final double P1 = 0.693154489663236;
+    private static final double P2 = 0.24014181820141745;
+    private static final double P3 = 0.05586033707730399;
+    private static final double P4 = 0.008949590423281677;
+    private static final double P5 = 0.0018937540582229964;
+    private static final double LOG2E = 1.4426950408889634;
+
+    static {
+        for (int n = 0; n < SIGMOID_TABLE.length; n++) {
+            SIGMOID_TABLE[n] = 1.0 / (1.0 + Math.exp(-(n / STEPS_PER_UNIT - RANGE)));
+        }
+    }
+
+    private FastActivations() {
+    }
+
+    // Branches rather than Math.max/min for the clamp, which the JIT compiles to much slower code
+    static double sigmoid(double x) {
+        if (x <= -RANGE) {
+            return SIGMOID_TABLE[0];
+        }
+        if (x >= RANGE) {
+            return SIGMOID_TABLE[SIGMOID_TABLE.length - 2];
+        }
+        double t = (x + RANGE) * STEPS_PER_UNIT;
+        int n = (int) t;
+        double a = SIGMOID_TABLE[n];
+        return a + (t - n) * (SIGMOID_TABLE[n + 1] - a);
+    }
+
+    static double tanh(double x) {
+        return 2.0 * sigmoid(2.0 * x) - 1.0;
+    }
+
+    // e^x for x <= 0
+    static double exp(double x) {
+        if (x < -708.0) {
+            return 0.0;
+        }
+        double t = x * LOG2E;
+        double k = Math.floor(t);
+        double f = t - k;
+        double p = P0 + f * (P1 + f * (P2 + f * (P3 + f * (P4 + f * P5))));
+        return p * Double.longBitsToDouble(((long) k + 1023) << 52);
+    }
+}
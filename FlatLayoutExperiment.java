@@ -0,0 +1,227 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.Random;
+
+// Checks that the flat row-major weight layout of MLP computes the same thing as the original
+// double[][] layout. ReferenceMLP below is the original forward, backward and updateWeights code.
+// For each output activation both models start from the same weights and see the same random
+// inputs (with some zero features) and targets; outputs, errors, weight changes and updated
+// weights are compared after every step. Differences are only expected in the last bits, e.g. when
+// the vector kernels fuse a multiply and add. Exits with status 1 if any difference exceeds tolerance.
+// Results are written to FlatLayoutExperimentResults.txt.
+// Usage: java FlatLayoutExperiment [steps] [tolerance]
+public class FlatLayoutExperiment {
+    public static void main(String[] args) throws Exception {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 1e-9;
+        ActivationFunctionType[] activations = {ActivationFunctionType.SIGMOID, ActivationFunctionType.LINEAR,
+            ActivationFunctionType.SOFTMAX};
+        boolean failed = false;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("FlatLayoutExperimentResults.txt"))) {
+            writer.write("Flat Layout Experiment Results\n");
+            writer.write("==============================\n");
+            writer.write("Model: 16-40-26, " + steps + " backward steps, weights updated every 10, tolerance " + tolerance + "\n\n");
+            writer.write(String.format("%-8s %14s %14s %14s %14s %s\n", "Output", "Max out diff", "Max err diff",
+                "Max dW diff", "Max W diff", "Status"));
+
+            for (ActivationFunctionType activation : activations) {
+                double[] diffs = compare(activation, steps);
+                boolean ok = diffs[0] <= tolerance && diffs[1] <= tolerance && diffs[2] <= tolerance && diffs[3] <= tolerance;
+                failed |= !ok;
+                writer.write(String.format("%-8s %14.3e %14.3e %14.3e %14.3e %s\n", activation, diffs[0], diffs[1],
+                    diffs[2], diffs[3], ok ? "ok" : "MISMATCH"));
+            }
+        }
+        System.out.println("Results saved to FlatLayoutExperimentResults.txt");
+        if (failed) {
+            System.err.println("Flat layout differs from the double[][] reference");
+            System.exit(1);
+        }
+    }
+
+    // Runs both models side by side and returns the largest {output, error, weight change, weight} differences
+    static double[] compare(ActivationFunctionType activation, int steps) {
+        int NI = 16, NH = 40, NO = 26;
+        MLP nn = new MLP(NI, NH, NO, activation, 42);
+        ReferenceMLP reference = new ReferenceMLP(NI, NH, NO, activation);
+        for (int i = 0; i < NI; i++) {
+            for (int j = 0; j < NH; j++) {
+                reference.W1[i][j] = nn.W1[i * NH + j];
+            }
+        }
+        for (int j = 0; j < NH; j++) {
+            for (int k = 0; k < NO; k++) {
+                reference.W2[j][k] = nn.W2[j * NO + k];
+            }
+        }
+
+        Random rand = new Random(7);
+        double[] input = new double[NI];
+        double[] target = new double[NO];
+        double[] diffs = new double[4];
+        for (int step = 1; step <= steps; step++) {
+            for (int i = 0; i < NI; i++) {
+                input[i] = rand.nextInt(4) == 0 ? 0.0 : rand.nextDouble();
+            }
+            for (int k = 0; k < NO; k++) {
+                target[k] = activation == ActivationFunctionType.SOFTMAX ? 0.0 : rand.nextDouble();
+            }
+            if (activation == ActivationFunctionType.SOFTMAX) {
+                target[rand.nextInt(NO)] = 1.0;
+            }
+
+            nn.forward(input);
+            reference.forward(input);
+            for (int k = 0; k < NO; k++) {
+                diffs[0] = Math.max(diffs[0], Math.abs(nn.O[k] - reference.O[k]));
+            }
+            diffs[1] = Math.max(diffs[1], Math.abs(nn.backward(input, target) - reference.backward(input, target)));
+            diffs[2] = Math.max(diffs[2], maxDiff(nn.dW1, reference.dW1, NH));
+            diffs[2] = Math.max(diffs[2], maxDiff(nn.dW2, reference.dW2, NO));
+
+            if (step % 10 == 0) {
+                nn.updateWeights(0.1);
+                reference.updateWeights(0.1);
+                diffs[3] = Math.max(diffs[3], maxDiff(nn.W1, reference.W1, NH));
+                diffs[3] = Math.max(diffs[3], maxDiff(nn.W2, reference.W2, NO));
+            }
+        }
+        return diffs;
+    }
+
+    static double maxDiff(double[] flat, double[][] rows, int cols) {
+        double max = 0;
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < cols; c++) {
+                max = Math.max(max, Math.abs(flat[r * cols + c] - rows[r][c]));
+            }
+        }
+        return max;
+    }
+
+    // The original double[][] MLP, kept as the reference. It calls MLP's activation functions so
+    // that both sides follow -Dmlp.fastActivations and only the weight layout differs.
+    static class ReferenceMLP {
+        int NI, NH, NO;
+        double[][] W1, W2;
+        double[][] dW1, dW2;
+        double[] Z1, Z2, H, O;
+        ActivationFunctionType outputActivation;
+
+        ReferenceMLP(int numInputs, int numHidden, int numOutputs, ActivationFunctionType outputActivation) {
+            NI = numInputs;
+            NH = numHidden;
+            NO = numOutputs;
+            this.outputActivation = outputActivation;
+            W1 = new double[NI][NH];
+            W2 = new double[NH][NO];
+            dW1 = new double[NI][NH];
+            dW2 = new double[NH][NO];
+            Z1 = new double[NH];
+            Z2 = new double[NO];
+            H = new double[NH];
+            O = new double[NO];
+        }
+
+        void forward(double[] input) {
+            for (int j = 0; j < NH; j++) {
+                Z1[j] = 0.0;
+                for (int i = 0; i < NI; i++) {
+                    Z1[j] += input[i] * W1[i][j];
+                }
+                H[j] = MLP.sigmoid(Z1[j]);
+            }
+            for (int k = 0; k < NO; k++) {
+                Z2[k] = 0.0;
+                for (int j = 0; j < NH; j++) {
+                    Z2[k] += H[j] * W2[j][k];
+                }
+            }
+            if (outputActivation == ActivationFunctionType.SIGMOID) {
+                for (int k = 0; k < NO; k++) {
+                    O[k] = MLP.sigmoid(Z2[k]);
+                }
+            } else if (outputActivation == ActivationFunctionType.LINEAR) {
+                for (int k = 0; k < NO; k++) {
+                    O[k] = Z2[k];
+                }
+            } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+                O = softmax(Z2);
+            }
+        }
+
+        double backward(double[] input, double[] target) {
+            double error = 0.0;
+            double[] deltaO = new double[NO];
+            if (outputActivation == ActivationFunctionType.SIGMOID || outputActivation == ActivationFunctionType.LINEAR) {
+                for (int k = 0; k < NO; k++) {
+                    double diff = O[k] - target[k];
+                    if (outputActivation == ActivationFunctionType.SIGMOID) {
+                        deltaO[k] = diff * MLP.sigmoidDerivative(O[k]);
+                    } else {
+                        deltaO[k] = diff;
+                    }
+                    error += 0.5 * diff * diff;
+                }
+            } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+                for (int k = 0; k < NO; k++) {
+                    deltaO[k] = O[k] - target[k];
+                    error -= target[k] * Math.log(O[k]);
+                }
+            }
+
+            double[] deltaH = new double[NH];
+            for (int j = 0; j < NH; j++) {
+                deltaH[j] = 0.0;
+                for (int k = 0; k < NO; k++) {
+                    deltaH[j] += deltaO[k] * W2[j][k];
+                }
+                deltaH[j] *= MLP.sigmoidDerivative(H[j]);
+            }
+            for (int j = 0; j < NH; j++) {
+                for (int k = 0; k < NO; k++) {
+                    dW2[j][k] += deltaO[k] * H[j];
+                }
+            }
+            for (int i = 0; i < NI; i++) {
+                for (int j = 0; j < NH; j++) {
+                    dW1[i][j] += deltaH[j] * input[i];
+                }
+            }
+            return error;
+        }
+
+        void updateWeights(double learningRate) {
+            for (int j = 0; j < NH; j++) {
+                for (int k = 0; k < NO; k++) {
+                    W2[j][k] -= learningRate * dW2[j][k];
+                    dW2[j][k] = 0.0;
+                }
+            }
+            for (int i = 0; i < NI; i++) {
+                for (int j = 0; j < NH; j++) {
+                    W1[i][j] -= learningRate * dW1[i][j];
+                    dW1[i][j] = 0.0;
+                }
+            }
+        }
+
+        static double[] softmax(double[] z) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (double val : z) {
+                max = Math.max(max, val);
+            }
+            double sum = 0.0;
+            double[] expVals = new double[z.length];
+            for (int i = 0; i < z.length; i++) {
+                expVals[i] = MLP.softmaxExp(z[i] - max);
+                sum += expVals[i];
+            }
+            for (int i = 0; i < z.length; i++) {
+                expVals[i] /= sum;
+            }
+            return expVals;
+        }
+    }
+}
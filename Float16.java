@@ -0,0 +1,57 @@
+// IEEE 754 half precision conversions for compact wire formats (Java 17 has no Float.floatToFloat16).
+// Rounds to nearest, ties to even, with subnormals, overflow to infinity and NaN preserved.
+// A half has 11 significant bits, so values keep about 3 decimal digits, from 6.1e-5 up to
+// 65504 at full precision and down to 6.0e-8 as subnormals.
+public class Float16 {
+    // Nearest half to f, as its 16 bits
+    public static short fromFloat(float f) {
+        int bits = Float.floatToRawIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xff;
+        int mantissa = bits & 0x7fffff;
+        if (exponent == 0xff) {
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0)); // infinity or NaN
+        }
+        int e = exponent - 127 + 15;
+        if (e >= 0x1f) {
+            return (short) (sign | 0x7c00); // too large, infinity
+        }
+        if (e <= 0) {
+            // Subnormal half: shift the full 24 bit significand down to the 2^-24 unit
+            if (e < -10) {
+                return (short) sign;
+            }
+            int significand = mantissa | 0x800000;
+            int shift = 14 - e;
+            int half = significand >>> shift;
+            int rest = significand & ((1 << shift) - 1);
+            int midpoint = 1 << (shift - 1);
+            if (rest > midpoint || (rest == midpoint && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (e << 10) | (mantissa >>> 13);
+        int rest = mantissa & 0x1fff;
+        if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+            half++; // a carry into the exponent is still the correctly rounded value
+        }
+        return (short) (sign | half);
+    }
+
+    // The float value of the half given by its 16 bits
+    public static float toFloat(short half) {
+        int bits = half & 0xffff;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f;
+            return sign != 0 ? -value : value;
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+}
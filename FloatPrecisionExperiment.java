@@ -0,0 +1,151 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Trains MLP (double) and MLPFloat (float) side by side on the letter recognition data from the
+// same initial weights and example order, and compares test accuracy, training time and
+// prediction throughput.
+// Usage: java FloatPrecisionExperiment [epochs] [hiddenSizes]
+//   hiddenSizes: comma-separated hidden layer widths, default 40,256
+public class FloatPrecisionExperiment {
+    public static void main(String[] args) {
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        String[] hiddenSizes = (args.length > 1 ? args[1] : "40,256").split(",");
+        int NI = 16;
+        int NO = 26;
+        int batchSize = 10;
+        double learningRate = 0.1;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("FloatPrecisionExperimentResults.txt"))) {
+            ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+            int trainingSamples = (int) (0.8 * dataset.size());
+            int testSamples = dataset.size() - trainingSamples;
+
+            // Dense copies of the data in both precisions
+            double[][] inputs = new double[dataset.size()][];
+            double[][] targets = new double[dataset.size()][];
+            float[][] floatInputs = new float[dataset.size()][NI];
+            float[][] floatTargets = new float[dataset.size()][NO];
+            int[] labels = new int[dataset.size()];
+            for (int n = 0; n < dataset.size(); n++) {
+                inputs[n] = dataset.get(n).input;
+                targets[n] = dataset.get(n).output;
+                for (int i = 0; i < NI; i++) {
+                    floatInputs[n][i] = (float) inputs[n][i];
+                }
+                for (int k = 0; k < NO; k++) {
+                    floatTargets[n][k] = (float) targets[n][k];
+                }
+                labels[n] = MLP.argMax(targets[n]);
+            }
+
+            writer.write("Float Precision Experiment Results\n");
+            writer.write("==================================\n");
+            writer.write("Configuration:\n");
+            writer.write("Epochs: " + epochs + "\n");
+            writer.write("Batch Size: " + batchSize + "\n");
+            writer.write("Learning Rate: " + learningRate + "\n");
+            writer.write("Training / Test Examples: " + trainingSamples + " / " + testSamples + "\n\n");
+            writer.write("Hidden\tPrecision\tModel Bytes\tTrain Seconds\tPredictions/s\tTest Accuracy\n");
+
+            for (String hidden : hiddenSizes) {
+                int NH = Integer.parseInt(hidden);
+                MLP nn = new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, 42);
+                MLPFloat nnFloat = new MLPFloat(NI, NH, NO, ActivationFunctionType.SOFTMAX, 42);
+                int[] order = new int[trainingSamples];
+                double[][] batchInputs = new double[batchSize][];
+                double[][] batchTargets = new double[batchSize][];
+                float[][] floatBatchInputs = new float[batchSize][];
+                float[][] floatBatchTargets = new float[batchSize][];
+
+                // Double precision
+                Random rand = new Random(42);
+                long start = System.nanoTime();
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    shuffle(order, rand);
+                    for (int first = 0; first < trainingSamples; first += batchSize) {
+                        int count = Math.min(batchSize, trainingSamples - first);
+                        for (int b = 0; b < count; b++) {
+                            batchInputs[b] = inputs[order[first + b]];
+                            batchTargets[b] = targets[order[first + b]];
+                        }
+                        nn.forwardBatch(batchInputs, count);
+                        nn.backwardBatch(batchTargets);
+                        nn.updateWeights(learningRate);
+                    }
+                }
+                double trainSeconds = (System.nanoTime() - start) / 1e9;
+
+                int correct = 0;
+                start = System.nanoTime();
+                for (int n = trainingSamples; n < dataset.size(); n++) {
+                    nn.forward(inputs[n]);
+                    if (MLP.argMax(nn.O) == labels[n]) {
+                        correct++;
+                    }
+                }
+                double predictSeconds = (System.nanoTime() - start) / 1e9;
+                writer.write(String.format("%d\tdouble\t%d\t%.3f\t%.0f\t%.2f%%\n", NH, 8L * (nn.W1.length + nn.W2.length),
+                    trainSeconds, testSamples / predictSeconds, 100.0 * correct / testSamples));
+
+                // Single precision, same initial weights and example order
+                rand = new Random(42);
+                start = System.nanoTime();
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    shuffle(order, rand);
+                    for (int first = 0; first < trainingSamples; first += batchSize) {
+                        int count = Math.min(batchSize, trainingSamples - first);
+                        for (int b = 0; b < count; b++) {
+                            floatBatchInputs[b] = floatInputs[order[first + b]];
+                            floatBatchTargets[b] = floatTargets[order[first + b]];
+                        }
+                        nnFloat.forwardBatch(floatBatchInputs, count);
+                        nnFloat.backwardBatch(floatBatchTargets);
+                        nnFloat.updateWeights(learningRate);
+                    }
+                }
+                trainSeconds = (System.nanoTime() - start) / 1e9;
+
+                correct = 0;
+                start = System.nanoTime();
+                for (int n = trainingSamples; n < dataset.size(); n++) {
+                    nnFloat.forward(floatInputs[n]);
+                    if (argMax(nnFloat.O) == labels[n]) {
+                        correct++;
+                    }
+                }
+                predictSeconds = (System.nanoTime() - start) / 1e9;
+                writer.write(String.format("%d\tfloat\t%d\t%.3f\t%.0f\t%.2f%%\n", NH, 4L * (nnFloat.W1.length + nnFloat.W2.length),
+                    trainSeconds, testSamples / predictSeconds, 100.0 * correct / testSamples));
+            }
+            System.out.println("Results saved to FloatPrecisionExperimentResults.txt");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Fisher-Yates shuffle of the visiting order, starting from the identity each time
+    static void shuffle(int[] order, Random rand) {
+        for (int n = 0; n < order.length; n++) {
+            order[n] = n;
+        }
+        for (int n = order.length - 1; n > 0; n--) {
+            int m = rand.nextInt(n + 1);
+            int tmp = order[n];
+            order[n] = order[m];
+            order[m] = tmp;
+        }
+    }
+
+    // Index of the largest value, as MLP.argMax for float arrays
+    static int argMax(float[] array) {
+        int index = 0;
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] > array[index]) {
+                index = i;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,57 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+// Blocking client for InferenceServer; one request in flight at a time, so use one client per thread
+public class InferenceClient implements AutoCloseable {
+    Socket socket;
+    DataInputStream in;
+    DataOutputStream out;
+    int NI, NO;
+    int nextId;
+
+    public InferenceClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (in.readInt() != InferenceServer.MAGIC) {
+            socket.close();
+            throw new IOException("Not an inference server at " + host + ":" + port);
+        }
+        NI = in.readInt();
+        NO = in.readInt();
+    }
+
+    // Sends input (length NI), fills output (length NO) with the model output and returns its argmax.
+    // Throws an IOException if the server rejected the request because its queue was full; the
+    // connection stays usable.
+    public int predict(double[] input, double[] output) throws IOException {
+        int id = nextId++;
+        out.writeInt(id);
+        for (int i = 0; i < NI; i++) {
+            out.writeDouble(input[i]);
+        }
+        out.flush();
+
+        if (in.readInt() != id) {
+            throw new IOException("Response out of order");
+        }
+        int argMax = in.readInt();
+        if (argMax == InferenceServer.REJECTED) {
+            throw new IOException("Request rejected, server queue full");
+        }
+        for (int k = 0; k < NO; k++) {
+            output[k] = in.readDouble();
+        }
+        return argMax;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
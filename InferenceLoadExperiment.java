@@ -0,0 +1,124 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Load test of InferenceServer on localhost with the letter recognition model.
+// For each maxBatch / maxWait setting a server is started on a free port and a number of client
+// threads, each with its own connection, send test rows back to back (closed loop). Reports
+// throughput, latency percentiles and the mean micro-batch size, and checks that every served
+// prediction matches MLPSnapshot.predict on the same model. Results go to
+// InferenceLoadExperimentResults.txt.
+// Usage: java InferenceLoadExperiment [clients] [requestsPerClient] [model.mlp]
+// Without a model file (default LetterRecognitionModel.mlp) a model is trained for a few epochs first.
+public class InferenceLoadExperiment {
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        String modelFile = args.length > 2 ? args[2] : "LetterRecognitionModel.mlp";
+        int[][] settings = {{1, 0}, {8, 0}, {32, 0}, {32, 200}, {64, 1000}}; // {maxBatch, maxWaitMicros}
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        LetterModels.LoadedModel loaded = LetterModels.loadOrTrain(modelFile, trainingData, 20);
+        MLP nn = loaded.nn;
+        MLPSnapshot reference = nn.snapshot();
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("InferenceLoadExperimentResults.txt"))) {
+            writer.write("Inference Load Experiment Results\n");
+            writer.write("=================================\n");
+            writer.write("Model: " + nn.NI + "-" + nn.NH + "-" + nn.NO + " " + nn.outputActivation + ", " + loaded.source + "\n");
+            writer.write("Clients: " + clients + " closed-loop connections, " + requestsPerClient + " requests each\n");
+            writer.write("Processors: " + Runtime.getRuntime().availableProcessors() + "\n\n");
+            writer.write(String.format("%8s %10s %12s %10s %10s %10s %10s %10s %10s %9s\n", "MaxBatch", "MaxWait us",
+                "Requests/s", "Mean batch", "p50 us", "p90 us", "p99 us", "p99.9 us", "Max us", "Matches"));
+
+            for (int[] setting : settings) {
+                MLP served = new MLP(nn.NI, nn.NH, nn.NO, nn.outputActivation);
+                System.arraycopy(nn.W1, 0, served.W1, 0, nn.W1.length);
+                System.arraycopy(nn.W2, 0, served.W2, 0, nn.W2.length);
+                try (InferenceServer server = new InferenceServer(served, 0, setting[0], setting[1])) {
+                    run(server.port(), clients, Math.max(1, requestsPerClient / 10), testData, reference); // warm-up
+                    long batchesBefore = server.batches;
+                    long requestsBefore = server.requests;
+
+                    long start = System.nanoTime();
+                    Result result = run(server.port(), clients, requestsPerClient, testData, reference);
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    double meanBatch = (double) (server.requests - requestsBefore) / (server.batches - batchesBefore);
+
+                    long[] latencies = result.latencies;
+                    Arrays.sort(latencies);
+                    String row = String.format("%8d %10d %12.0f %10.2f %10.1f %10.1f %10.1f %10.1f %10.1f %9s\n",
+                        setting[0], setting[1], latencies.length / seconds, meanBatch,
+                        percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                        percentile(latencies, 0.999), latencies[latencies.length - 1] / 1000.0,
+                        result.mismatches == 0 ? "all" : result.mismatches + " diff");
+                    writer.write(row);
+                    writer.flush();
+                    System.out.print(row);
+                }
+            }
+        }
+        System.out.println("Results saved to InferenceLoadExperimentResults.txt");
+    }
+
+    // Request latencies in nanoseconds from every client, and predictions that differed from the reference
+    static class Result {
+        long[] latencies;
+        int mismatches;
+    }
+
+    // Runs clients threads of requestsPerClient requests each against the server on port
+    static Result run(int port, int clients, int requestsPerClient, ArrayList<TrainingExample> rows, MLPSnapshot reference)
+            throws Exception {
+        Result result = new Result();
+        result.latencies = new long[clients * requestsPerClient];
+        int[] mismatches = new int[clients];
+        Thread[] threads = new Thread[clients];
+        Exception[] failure = new Exception[1];
+        for (int c = 0; c < clients; c++) {
+            final int client = c;
+            threads[c] = new Thread(() -> {
+                double[] output = new double[reference.NO];
+                double[] expected = new double[reference.NO];
+                try (InferenceClient connection = new InferenceClient("localhost", port)) {
+                    for (int n = 0; n < requestsPerClient; n++) {
+                        double[] input = rows.get((client * 7919 + n) % rows.size()).input;
+                        long start = System.nanoTime();
+                        int predicted = connection.predict(input, output);
+                        result.latencies[client * requestsPerClient + n] = System.nanoTime() - start;
+                        reference.predict(input, expected);
+                        if (predicted != MLP.argMax(expected) || !Arrays.equals(output, expected)) {
+                            mismatches[client]++;
+                        }
+                    }
+                } catch (Exception e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        for (int m : mismatches) {
+            result.mismatches += m;
+        }
+        return result;
+    }
+
+    // The p-th quantile of sorted nanosecond latencies, in microseconds
+    static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+}
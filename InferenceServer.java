@@ -0,0 +1,316 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Serves an MLP to other processes over a plain TCP binary protocol, batching concurrent requests.
+//
+// Each connection has a reader thread that queues its requests. One batcher thread takes the
+// oldest request, then waits up to maxWait for more, up to maxBatch in total. Requests already
+// queued are always taken without waiting. It runs the whole micro-batch through
+// MLP.forwardBatch and hands each result to the writer thread of its connection. Only the batcher
+// touches the model, so the MLP's batch buffers need no locking.
+//
+// The batcher never blocks on a socket. Each connection has its own writer thread and a bounded
+// outbox. If a client stops reading until its outbox is full, that connection is closed, and the
+// other clients are not held up. The request queue is bounded too: when it is full, new requests
+// are answered at once with REJECTED instead of being queued.
+//
+// Protocol (big-endian, as DataInput/DataOutputStream):
+//   on connect the server sends  int MAGIC, int NI, int NO
+//   request:   int id, NI doubles
+//   response:  int id, int argmax, NO doubles (the output row, probabilities for SOFTMAX)
+//          or  int id, int REJECTED when the server is overloaded; nothing follows
+// A client may pipeline requests; responses on a connection come back in request order, except
+// that a REJECTED answer can overtake answers still being computed, so match pipelined ones by id.
+//
+// Usage: java InferenceServer model.mlp [port] [maxBatch] [maxWaitMicros] [queueCapacity]
+public class InferenceServer implements AutoCloseable {
+    static final int MAGIC = 0x4D4C5053; // "MLPS"
+    static final int REJECTED = -1;
+    static final int OUTBOX_CAPACITY = 256; // responses waiting for one connection's writer
+
+    // One queued request and where its answer goes
+    static class Request {
+        Connection connection;
+        int id;
+        double[] input;
+    }
+
+    // One answer waiting to be written; output is null for a rejected request
+    static class Response {
+        int id;
+        int argMax;
+        double[] output;
+    }
+
+    // Marks the end of a connection's responses
+    private static final Response END = new Response();
+
+    // Output side of one client connection; its writer thread is the only one using out
+    static class Connection {
+        Socket socket;
+        DataOutputStream out;
+        ArrayBlockingQueue<Response> outbox = new ArrayBlockingQueue<>(OUTBOX_CAPACITY);
+        Thread writer;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        // Queues a response without blocking; a client too slow to take its responses is disconnected
+        void send(Response response) {
+            if (!outbox.offer(response)) {
+                closeQuietly(socket);
+            }
+        }
+
+        // Lets the writer answer what is queued and close the socket, or stops it at once if the outbox is full
+        void finish() {
+            if (!outbox.offer(END)) {
+                closeQuietly(socket);
+                writer.interrupt();
+            }
+        }
+    }
+
+    MLP nn;
+    int maxBatch;
+    long maxWaitNanos;
+    ServerSocket serverSocket;
+    ArrayBlockingQueue<Request> queue;
+    double[][] batchInputs;
+    Request[] batch;
+    Set<Socket> sockets = ConcurrentHashMap.newKeySet(); // open client connections
+    Thread batcher;
+    volatile boolean closed;
+
+    // Batch statistics, read after the server has stopped or approximately while it runs
+    volatile long batches, requests;
+    AtomicLong rejected = new AtomicLong(); // requests turned away because the queue was full
+
+    // Binds to port on the loopback interface (0 picks a free port) and starts serving, queueing
+    // at most 64 * maxBatch requests
+    public InferenceServer(MLP nn, int port, int maxBatch, long maxWaitMicros) throws IOException {
+        this(nn, port, maxBatch, maxWaitMicros, 64 * maxBatch);
+    }
+
+    // Same as above, rejecting requests while queueCapacity are already waiting
+    public InferenceServer(MLP nn, int port, int maxBatch, long maxWaitMicros, int queueCapacity) throws IOException {
+        if (maxBatch < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("maxBatch and queueCapacity must be at least 1");
+        }
+        this.nn = nn;
+        this.maxBatch = maxBatch;
+        maxWaitNanos = maxWaitMicros * 1000;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchInputs = new double[maxBatch][];
+        batch = new Request[maxBatch];
+        nn.ensureBatchCapacity(maxBatch);
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        daemon(this::acceptLoop, "mlp-server-accept");
+        batcher = daemon(this::batchLoop, "mlp-server-batcher");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java InferenceServer model.mlp [port] [maxBatch] [maxWaitMicros] [queueCapacity]");
+            System.exit(2);
+        }
+        MLP nn = ModelCheckpoint.read(args[0]).model;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7878;
+        int maxBatch = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        long maxWaitMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        int queueCapacity = args.length > 4 ? Integer.parseInt(args[4]) : 64 * maxBatch;
+        InferenceServer server = new InferenceServer(nn, port, maxBatch, maxWaitMicros, queueCapacity);
+        System.out.println("Serving " + args[0] + " (" + nn.NI + "-" + nn.NH + "-" + nn.NO + ") on port " + server.port()
+            + ", maxBatch " + maxBatch + ", maxWait " + maxWaitMicros + " us, queue " + queueCapacity);
+        Thread.currentThread().join();
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Mean number of requests per forward pass so far
+    public double meanBatchSize() {
+        return batches == 0 ? 0.0 : (double) requests / batches;
+    }
+
+    private static Thread daemon(Runnable body, String name) {
+        Thread t = new Thread(body, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                daemon(() -> readLoop(socket), "mlp-server-connection");
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Sends the header, starts the connection's writer, then queues requests until the client disconnects
+    private void readLoop(Socket socket) {
+        sockets.add(socket);
+        Connection connection = null;
+        try {
+            connection = new Connection(socket);
+            connection.out.writeInt(MAGIC);
+            connection.out.writeInt(nn.NI);
+            connection.out.writeInt(nn.NO);
+            connection.out.flush();
+            Connection writerConnection = connection;
+            connection.writer = daemon(() -> writeLoop(writerConnection), "mlp-server-writer");
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (!closed) {
+                Request request = new Request();
+                request.connection = connection;
+                request.id = in.readInt();
+                request.input = new double[nn.NI];
+                for (int i = 0; i < nn.NI; i++) {
+                    request.input[i] = in.readDouble();
+                }
+                if (!queue.offer(request)) {
+                    Response response = new Response();
+                    response.id = request.id;
+                    response.argMax = REJECTED;
+                    connection.send(response);
+                    rejected.incrementAndGet();
+                }
+            }
+        } catch (EOFException e) {
+            // client disconnected
+        } catch (IOException e) {
+            if (!closed && !socket.isClosed()) {
+                System.err.println("Connection failed: " + e.getMessage());
+            }
+        } finally {
+            if (connection == null || connection.writer == null) {
+                // no writer was started (the header could not be sent), so nobody else closes the socket
+                closeQuietly(socket);
+                sockets.remove(socket);
+            } else {
+                connection.finish();
+            }
+        }
+    }
+
+    // Writes the responses of one connection, flushing whenever its outbox runs empty
+    private void writeLoop(Connection connection) {
+        try {
+            while (true) {
+                Response response = connection.outbox.take();
+                if (response == END) {
+                    break;
+                }
+                connection.out.writeInt(response.id);
+                connection.out.writeInt(response.argMax);
+                if (response.output != null) {
+                    for (double v : response.output) {
+                        connection.out.writeDouble(v);
+                    }
+                }
+                if (connection.outbox.isEmpty()) {
+                    connection.out.flush();
+                }
+            }
+            connection.out.flush();
+        } catch (IOException e) {
+            // client gone; the reader sees the closed socket and exits
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(connection.socket);
+            sockets.remove(connection.socket);
+        }
+    }
+
+    private void batchLoop() {
+        try {
+            while (!closed) {
+                int count = collect();
+                for (int b = 0; b < count; b++) {
+                    batchInputs[b] = batch[b].input;
+                }
+                nn.forwardBatch(batchInputs, count);
+                respond(count);
+                requests += count;
+                batches++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Fills batch with the oldest request and whatever else arrives within maxWait, returning the count
+    private int collect() throws InterruptedException {
+        batch[0] = queue.take();
+        int count = 1;
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (count < maxBatch) {
+            long remaining = deadline - System.nanoTime();
+            Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch[count++] = next;
+        }
+        return count;
+    }
+
+    // Copies the output row of every request in the batch to its connection's writer
+    private void respond(int count) {
+        for (int b = 0; b < count; b++) {
+            int row = b * nn.NO;
+            Response response = new Response();
+            response.id = batch[b].id;
+            response.output = new double[nn.NO];
+            System.arraycopy(nn.batchO, row, response.output, 0, nn.NO);
+            response.argMax = MLP.argMax(response.output);
+            batch[b].connection.send(response);
+            batch[b] = null;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        batcher.interrupt();
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.Random;
+
+// Checks the SIMD kernels against the scalar ones and times both.
+// Needs the Vector API: compile simd/SimdKernels.java as described there and run with
+//   java --add-modules jdk.incubator.vector KernelExperiment
+// Exits with status 1 if axpy is not bit-identical or dot differs by more than a relative 1e-12.
+public class KernelExperiment {
+    public static void main(String[] args) throws Exception {
+        Kernels scalar = new ScalarKernels();
+        Kernels simd = Kernels.simd();
+        if (simd == null) {
+            System.err.println("SIMD kernels unavailable: run with --add-modules jdk.incubator.vector after compiling simd/SimdKernels.java");
+            System.exit(1);
+        }
+
+        Random rand = new Random(42);
+        boolean passed = true;
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("KernelExperimentResults.txt"))) {
+            writer.write("Kernel Experiment Results\n");
+            writer.write("=========================\n");
+            writer.write("SIMD kernels: " + simd.name() + "\n\n");
+
+            // Equivalence over every length up to 100, covering all tail sizes, at unaligned offsets
+            double worstDot = 0;
+            boolean axpyExact = true;
+            for (int length = 0; length <= 100; length++) {
+                for (int offset = 0; offset < 3; offset++) {
+                    double[] x = randomArray(rand, length + offset);
+                    double[] y1 = randomArray(rand, length + offset);
+                    double[] y2 = y1.clone();
+                    double a = rand.nextDouble() * 2 - 1;
+                    scalar.axpy(a, x, offset, y1, offset, length);
+                    simd.axpy(a, x, offset, y2, offset, length);
+                    axpyExact &= java.util.Arrays.equals(y1, y2);
+
+                    double expected = scalar.dot(x, offset, y1, offset, length);
+                    double actual = simd.dot(x, offset, y1, offset, length);
+                    double scale = 0;
+                    for (int i = 0; i < length; i++) {
+                        scale += Math.abs(x[offset + i] * y1[offset + i]);
+                    }
+                    if (scale > 0) {
+                        worstDot = Math.max(worstDot, Math.abs(expected - actual) / scale);
+                    }
+                }
+            }
+            passed = axpyExact && worstDot <= 1e-12;
+            writer.write("axpy bit-identical to scalar: " + axpyExact + "\n");
+            writer.write("dot worst relative difference: " + worstDot + "\n\n");
+
+            // Throughput at the vector lengths the MLP layers use
+            writer.write("Length\tKernel\tScalar ns\tSIMD ns\tSpeedup\n");
+            for (int length : new int[] {16, 26, 40, 128, 256, 1024}) {
+                double[] x = randomArray(rand, length);
+                double[] y = randomArray(rand, length);
+                for (String kernel : new String[] {"axpy", "dot"}) {
+                    double scalarNanos = time(scalar, kernel, x, y);
+                    double simdNanos = time(simd, kernel, x, y);
+                    writer.write(String.format("%d\t%s\t%.1f\t%.1f\t%.2f\n", length, kernel, scalarNanos, simdNanos, scalarNanos / simdNanos));
+                }
+            }
+        }
+        System.out.println("Results saved to KernelExperimentResults.txt");
+        if (!passed) {
+            System.err.println("SIMD kernels do not match the scalar kernels");
+            System.exit(1);
+        }
+    }
+
+    static volatile double sink;
+
+    // Average nanoseconds per kernel call, after warm-up
+    static double time(Kernels kernels, String kernel, double[] x, double[] y) {
+        int calls = 2_000_000 / Math.max(1, x.length / 16);
+        double result = 0;
+        long start = 0;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int n = 0; n < calls; n++) {
+                if (kernel.equals("axpy")) {
+                    kernels.axpy(1e-9, x, 0, y, 0, x.length);
+                } else {
+                    result += kernels.dot(x, 0, y, 0, x.length);
+                }
+            }
+        }
+        sink = result + y[0];
+        return (double) (System.nanoTime() - start) / calls;
+    }
+
+    static double[] randomArray(Random rand, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = rand.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+}
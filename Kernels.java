@@ -0,0 +1,38 @@
+// The vector loops at the core of the MLP forward and backward passes.
+// MLP and MatrixKernels route their innermost loops through KERNELS, which is the Vector API
+// implementation in simd/SimdKernels.java when the jdk.incubator.vector module is present and
+// that class was compiled, and the plain scalar loops otherwise. Run with -Dmlp.simd=false to
+// force the scalar path.
+interface Kernels {
+    Kernels KERNELS = select();
+
+    // y[yOffset + i] += a * x[xOffset + i] for i in 0 .. length
+    void axpy(double a, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+    // Sum of a[aOffset + i] * b[bOffset + i] for i in 0 .. length
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    // Short name shown in benchmark reports
+    String name();
+
+    // The SIMD kernels if they can be used in this JVM, otherwise the scalar ones
+    static Kernels select() {
+        if (!Boolean.parseBoolean(System.getProperty("mlp.simd", "true"))) {
+            return new ScalarKernels();
+        }
+        Kernels simd = simd();
+        return simd != null ? simd : new ScalarKernels();
+    }
+
+    // Loads SimdKernels reflectively so this file compiles and runs without the incubator module; null if unavailable
+    static Kernels simd() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernels) Class.forName("SimdKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// Learning rate as a function of the epoch number, counted from 0
+@FunctionalInterface
+public interface LearningRateSchedule {
+    double rate(int epoch);
+
+    static LearningRateSchedule constant(double rate) {
+        return epoch -> rate;
+    }
+
+    // rate multiplied by factor every stepEpochs epochs
+    static LearningRateSchedule step(double rate, double factor, int stepEpochs) {
+        return epoch -> rate * Math.pow(factor, epoch / stepEpochs);
+    }
+
+    // rate * decay^epoch
+    static LearningRateSchedule exponential(double rate, double decay) {
+        return epoch -> rate * Math.pow(decay, epoch);
+    }
+
+    // Half-cosine from rate down to minRate over epochs, then held at minRate
+    static LearningRateSchedule cosine(double rate, double minRate, int epochs) {
+        return epoch -> epoch >= epochs
+            ? minRate
+            : minRate + 0.5 * (rate - minRate) * (1.0 + Math.cos(Math.PI * epoch / epochs));
+    }
+
+    // Linear ramp from rate / warmupEpochs up to rate over the first warmupEpochs, then after()
+    static LearningRateSchedule warmup(int warmupEpochs, double rate, LearningRateSchedule after) {
+        return epoch -> epoch < warmupEpochs
+            ? rate * (epoch + 1) / warmupEpochs
+            : after.rate(epoch - warmupEpochs);
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+// Helpers for the experiments that run an already trained letter recognition model: getting one
+// from a checkpoint (or training a stand-in when there is none) and timing predictions with it.
+public final class LetterModels {
+    private static volatile double sink; // keeps throughput() results alive
+
+    // A model and where it came from, for the results header
+    public static final class LoadedModel {
+        public final MLP nn;
+        public final String source;
+
+        LoadedModel(MLP nn, String source) {
+            this.nn = nn;
+            this.source = source;
+        }
+    }
+
+    private LetterModels() {
+    }
+
+    // Reads modelFile if it exists, otherwise trains a 16-40-26 softmax model on trainingData for the
+    // given number of epochs (batch 10, learning rate 0.1, seed 42)
+    public static LoadedModel loadOrTrain(String modelFile, ArrayList<TrainingExample> trainingData, int epochs)
+            throws IOException {
+        if (new File(modelFile).exists()) {
+            return new LoadedModel(ModelCheckpoint.read(modelFile).model, modelFile);
+        }
+        MLP nn = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+        Trainer trainer = new Trainer(nn, 10, new Random(42));
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            trainer.trainEpoch(trainingData, 0.1);
+        }
+        return new LoadedModel(nn, "trained for " + epochs + " epochs (" + modelFile + " not found)");
+    }
+
+    // Best predictions per second over 30 passes of predict across the rows
+    public static double throughput(ArrayList<TrainingExample> rows, ToDoubleFunction<double[]> predict) {
+        double best = 0;
+        for (int pass = 0; pass < 30; pass++) {
+            long start = System.nanoTime();
+            double sum = 0;
+            for (TrainingExample example : rows) {
+                sum += predict.applyAsDouble(example.input);
+            }
+            best = Math.max(best, rows.size() / ((System.nanoTime() - start) / 1e9));
+            sink = sum;
+        }
+        return best;
+    }
+}
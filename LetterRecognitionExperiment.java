@@ -3,7 +3,6 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.FileReader;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Random;
 
@@ -27,49 +26,43 @@ public class LetterRecognitionExperiment {
             double learningRate = 0.1;
             int maxEpochs = 2000;
 
-            // Create MLP with softmax output activation
-            MLP nn = new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX);
+            // Create MLP with softmax output activation, or resume from a checkpoint given as the first argument
+            MLP nn = args.length > 0
+                ? ModelCheckpoint.read(args[0]).model
+                : new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX);
+            if (nn.NI != NI || nn.NO != NO) {
+                throw new IllegalArgumentException("Checkpoint " + args[0] + " has " + nn.NI + " inputs and " + nn.NO
+                    + " outputs, the dataset needs " + NI + " and " + NO);
+            }
 
-            // Write configuration details to file
+            // Write configuration details to file, from the model actually trained
             writer.write("Letter Recognition Experiment Results\n");
             writer.write("=====================================\n");
             writer.write("Configuration:\n");
-            writer.write("Number of Inputs: " + NI + "\n");
-            writer.write("Number of Hidden Units: " + NH + "\n");
-            writer.write("Number of Outputs: " + NO + "\n");
+            if (args.length > 0) {
+                writer.write("Resumed From: " + args[0] + "\n");
+            }
+            writer.write("Number of Inputs: " + nn.NI + "\n");
+            writer.write("Number of Hidden Units: " + nn.NH + "\n");
+            writer.write("Number of Outputs: " + nn.NO + "\n");
             writer.write("Learning Rate: " + learningRate + "\n");
             writer.write("Max Epochs: " + maxEpochs + "\n\n");
 
             // Training loop
             int batchSize = 10; // Update weights after every 10 examples
-            int batchCounter = 0;
+            Trainer trainer = new Trainer(nn, batchSize, new Random(42)); // Shuffles the training data each epoch
             ArrayList<Double> epochErrors = new ArrayList<>();
 
-            for (int epoch = 1; epoch <= maxEpochs; epoch++) {
-                double totalError = 0;
-
-                // Shuffle training data for each epoch
-                Collections.shuffle(trainingData, new Random(42));
-
-                // Train on each example
-                for (TrainingExample example : trainingData) {
-                    nn.forward(example.input);
-                    totalError += nn.backward(example.input, example.output); // Accumulate updates
-                    batchCounter++;
-
-                    // Update weights after every 10 examples
-                    if (batchCounter % batchSize == 0) {
-                        nn.updateWeights(learningRate);
-                    }
-                }
+            // Per-epoch timings and test accuracy, only when run with -Dmlp.metrics=<file>
+            TrainingMetrics metrics = TrainingMetrics.fromSystemProperty();
+            trainer.setMetrics(metrics);
 
-                // Apply remaining updates
-                if (batchCounter % batchSize != 0) {
-                    nn.updateWeights(learningRate);
+            for (int epoch = 1; epoch <= maxEpochs; epoch++) {
+                double totalError = trainer.trainEpoch(trainingData, learningRate);
+                if (metrics != null) {
+                    metrics.report(epoch, accuracy(nn, testData));
                 }
 
-                batchCounter = 0; // Reset batch counter for next epoch
-
                 // Log error for selected epochs
                 if (epoch % 200 == 0 || epoch == maxEpochs) {
                     epochErrors.add(totalError / trainingSamples);
@@ -84,21 +77,18 @@ public class LetterRecognitionExperiment {
                 writer.write(epochLogged + "\t" + epochErrors.get(i) + "\n");
             }
 
-            // Evaluate on test set
-            int correct = 0;
-            for (TrainingExample example : testData) {
-                nn.forward(example.input);
-                int predictedIndex = argMax(nn.O);
-                int actualIndex = argMax(example.output);
-                if (predictedIndex == actualIndex) {
-                    correct++;
-                }
+            if (metrics != null) {
+                metrics.close();
             }
 
-            double accuracy = (double) correct / testData.size() * 100;
+            // Evaluate on test set
+            double accuracy = accuracy(nn, testData);
 
             // Write final results to file
             writer.write("\nFinal Test Set Accuracy: " + String.format("%.2f", accuracy) + "%\n");
+
+            // Save the trained model so it can be scored or trained further without retraining
+            ModelCheckpoint.write("LetterRecognitionModel.mlp", nn, null);
             System.out.println("Results saved to LetterRecognitionExperimentResults.txt");
         } catch (Exception e) {
             e.printStackTrace();
@@ -109,8 +99,11 @@ public class LetterRecognitionExperiment {
     public static ArrayList<TrainingExample> loadDataset(String filename) {
         ArrayList<TrainingExample> dataset = new ArrayList<>();
         HashMap<Character, Integer> letterToIndex = new HashMap<>();
+        double[][] oneHot = new double[26][]; // One shared, read-only target per letter
         for (int i = 0; i < 26; i++) {
             letterToIndex.put((char) ('A' + i), i);
+            oneHot[i] = new double[26];
+            oneHot[i][i] = 1.0;
         }
 
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
@@ -122,10 +115,8 @@ public class LetterRecognitionExperiment {
                 for (int i = 1; i <= 16; i++) {
                     input[i - 1] = Double.parseDouble(tokens[i]) / 15.0; // Normalize inputs
                 }
-                double[] output = new double[26];
                 int index = letterToIndex.get(letter);
-                output[index] = 1.0; // One-hot encoding
-                dataset.add(new TrainingExample(input, output));
+                dataset.add(new TrainingExample(input, oneHot[index], index)); // One-hot encoding and class index
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -134,16 +125,17 @@ public class LetterRecognitionExperiment {
         return dataset;
     }
 
-    // Find index of maximum value in array
-    public static int argMax(double[] array) {
-        int index = 0;
-        double max = array[0];
-        for (int i = 1; i < array.length; i++) {
-            if (array[i] > max) {
-                max = array[i];
-                index = i;
+    // Percentage of examples whose highest output is the target class
+    public static double accuracy(MLP nn, ArrayList<TrainingExample> data) {
+        int correct = 0;
+        for (TrainingExample example : data) {
+            nn.forward(example.input);
+            int predictedIndex = MLP.argMax(nn.O);
+            int actualIndex = MLP.argMax(example.output);
+            if (predictedIndex == actualIndex) {
+                correct++;
             }
         }
-        return index;
+        return (double) correct / data.size() * 100;
     }
 }
@@ -1,65 +1,96 @@
+import java.util.Arrays;
 import java.util.Random;
 
 public class MLP {
     int NI, NH, NO; // Number of inputs, hidden units, and outputs
-    double[][] W1, W2; // Weights in lower and upper layers
-    double[][] dW1, dW2; // weight changes applied to W1 and W2
+    double[] W1, W2; // Weights in lower and upper layers, row-major: W1[i * NH + j], W2[j * NO + k]
+    double[] dW1, dW2; // weight changes applied to W1 and W2, same layout as the weights
     double[] Z1, Z2, H, O; // Activations for lower layer, Activations for upper layer, values of hidden neurons (for dW2), output array
+    double[] deltaO, deltaH; // Error terms reused by every backward() call
     ActivationFunctionType outputActivation;
 
+    // Minibatch buffers, one row per example: batchX[b * NI + i], batchO[b * NO + k], ...
+    int batchCapacity;
+    int batchSize; // rows filled by the last forwardBatch call
+    double[] batchX, batchZ1, batchH, batchZ2, batchO, batchDeltaO, batchDeltaH;
+
     public MLP(int numInputs, int numHidden, int numOutputs, ActivationFunctionType outputActivation) {
         NI = numInputs;
         NH = numHidden;
         NO = numOutputs;
+        if (!supportsOutputActivation(outputActivation)) {
+            throw new IllegalArgumentException("Output activation " + outputActivation + " is only supported by DeepMLP");
+        }
         this.outputActivation = outputActivation;
 
-        W1 = new double[NI][NH];
-        W2 = new double[NH][NO];
-        dW1 = new double[NI][NH];
-        dW2 = new double[NH][NO];
+        W1 = new double[NI * NH];
+        W2 = new double[NH * NO];
+        dW1 = new double[NI * NH];
+        dW2 = new double[NH * NO];
         Z1 = new double[NH];
         Z2 = new double[NO];
         H = new double[NH];
         O = new double[NO];
+        deltaO = new double[NO];
+        deltaH = new double[NH];
 
         randomise();
     }
 
+    // Same as above, but the initial weights are drawn from a seeded generator so runs are repeatable
+    public MLP(int numInputs, int numHidden, int numOutputs, ActivationFunctionType outputActivation, long seed) {
+        this(numInputs, numHidden, numOutputs, outputActivation);
+        randomise(new Random(seed));
+    }
+
+    // Creates a model that shares this model's weights but owns its activations and weight changes.
+    // Used by ParallelTrainer so every worker can run forward/backward without touching the others.
+    MLP replica() {
+        MLP copy = new MLP(NI, NH, NO, outputActivation);
+        copy.W1 = W1;
+        copy.W2 = W2;
+        return copy;
+    }
+
     // Initialises W1 and W2 to small random values and dW1 and dW2 to zeros
     public void randomise() {
-        Random rand = new Random();
+        randomise(new Random());
+    }
+
+    // Same as randomise(), drawing from the given generator
+    public void randomise(Random rand) {
         double range = 1.0;
-        for (int i = 0; i < NI; i++) {
-            for (int j = 0; j < NH; j++) {
-                W1[i][j] = rand.nextDouble() * 2 * range - range;
-                dW1[i][j] = 0.0;
-            }
+        for (int n = 0; n < W1.length; n++) {
+            W1[n] = rand.nextDouble() * 2 * range - range;
+            dW1[n] = 0.0;
         }
-        for (int j = 0; j < NH; j++) {
-            for (int k = 0; k < NO; k++) {
-                W2[j][k] = rand.nextDouble() * 2 * range - range;
-                dW2[j][k] = 0.0;
-            }
+        for (int n = 0; n < W2.length; n++) {
+            W2[n] = rand.nextDouble() * 2 * range - range;
+            dW2[n] = 0.0;
         }
     }
 
     // Forward propagation; input[] processed to produce output in O[]
     public void forward(double[] input) {
-        // Hidden layer
+        // Hidden layer; each input scales one contiguous row of W1
         for (int j = 0; j < NH; j++) {
             Z1[j] = 0.0;
-            for (int i = 0; i < NI; i++) {
-                Z1[j] += input[i] * W1[i][j];
+        }
+        for (int i = 0; i < NI; i++) {
+            if (input[i] != 0.0) { // zero features contribute nothing
+                Kernels.KERNELS.axpy(input[i], W1, i * NH, Z1, 0, NH);
             }
+        }
+        for (int j = 0; j < NH; j++) {
             H[j] = sigmoid(Z1[j]);
         }
 
         // Output layer
         for (int k = 0; k < NO; k++) {
             Z2[k] = 0.0;
-            for (int j = 0; j < NH; j++) {
-                Z2[k] += H[j] * W2[j][k];
-            }
+        }
+        for (int j = 0; j < NH; j++) {
+            Kernels.KERNELS.axpy(H[j], W2, j * NO, Z2, 0, NO);
         }
 
         // Apply respective activation function
@@ -72,14 +103,13 @@ public class MLP {
                 O[k] = Z2[k];
             }
         } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
-            O = softmax(Z2);
+            softmax(Z2, O, 0, NO);
         }
     }
 
     // Backward propagation
     public double backward(double[] input, double[] target) {
         double error = 0.0;
-        double[] deltaO = new double[NO];
 
         if (outputActivation == ActivationFunctionType.SIGMOID || outputActivation == ActivationFunctionType.LINEAR) {
             for (int k = 0; k < NO; k++) {
@@ -100,79 +130,280 @@ public class MLP {
             }
         }
 
+        backpropagate(input);
+        return error;
+    }
+
+    // Same as above for a one-hot target given as its class index. With SOFTMAX output the
+    // cross-entropy gradient is O minus one at the label and the loss is -log O[label], so only
+    // one output is looked at instead of every target entry.
+    public double backward(double[] input, int label) {
+        checkLabel(label);
+        double error;
+        if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            System.arraycopy(O, 0, deltaO, 0, NO);
+            deltaO[label] -= 1.0;
+            error = -Math.log(O[label]);
+        } else {
+            error = squaredErrorDelta(O, 0, label, deltaO);
+        }
+
+        backpropagate(input);
+        return error;
+    }
+
+    // A label outside [0, NO) would index the deltas of another output or another row
+    private void checkLabel(int label) {
+        if (label < 0 || label >= NO) {
+            throw new IllegalArgumentException("Label " + label + " is outside 0.." + (NO - 1));
+        }
+    }
+
+    // Hidden layer delta and weight change accumulation once deltaO is set
+    private void backpropagate(double[] input) {
         // Hidden layer delta
-        double[] deltaH = new double[NH];
         for (int j = 0; j < NH; j++) {
-            deltaH[j] = 0.0;
-            for (int k = 0; k < NO; k++) {
-                deltaH[j] += deltaO[k] * W2[j][k];
-            }
-            deltaH[j] *= sigmoidDerivative(H[j]);
+            deltaH[j] = Kernels.KERNELS.dot(deltaO, 0, W2, j * NO, NO) * sigmoidDerivative(H[j]);
         }
 
         // Accumulate W2 weight updates
         for (int j = 0; j < NH; j++) {
-            for (int k = 0; k < NO; k++) {
-                dW2[j][k] += deltaO[k] * H[j];
-            }
+            Kernels.KERNELS.axpy(H[j], deltaO, 0, dW2, j * NO, NO);
         }
 
-        // W1
+        // W1; rows for zero features would only add zeros
         for (int i = 0; i < NI; i++) {
-            for (int j = 0; j < NH; j++) {
-                dW1[i][j] += deltaH[j] * input[i];
+            if (input[i] != 0.0) {
+                Kernels.KERNELS.axpy(input[i], deltaH, 0, dW1, i * NH, NH);
             }
         }
+    }
 
+    // Squared-error deltas of one SIGMOID or LINEAR output row against the one-hot target of label;
+    // returns the error
+    private double squaredErrorDelta(double[] out, int row, int label, double[] delta) {
+        double error = 0.0;
+        for (int k = 0; k < NO; k++) {
+            double diff = out[row + k] - (k == label ? 1.0 : 0.0);
+            delta[row + k] = outputActivation == ActivationFunctionType.SIGMOID ? diff * sigmoidDerivative(out[row + k]) : diff;
+            error += 0.5 * diff * diff;
+        }
         return error;
     }
 
+    // Forward propagation of a whole minibatch; row b of the result is batchO[b * NO .. b * NO + NO)
+    public void forwardBatch(double[][] inputs) {
+        forwardBatch(inputs, inputs.length);
+    }
+
+    // Forward propagation of the first count rows of inputs
+    public void forwardBatch(double[][] inputs, int count) {
+        forwardBatch(inputs, 0, count);
+    }
+
+    // Forward propagation of rows from .. from + count of inputs
+    public void forwardBatch(double[][] inputs, int from, int count) {
+        ensureBatchCapacity(count);
+        batchSize = count;
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(inputs[from + b], 0, batchX, b * NI, NI);
+        }
+
+        // Hidden layer: Z1 = X * W1
+        Arrays.fill(batchZ1, 0, count * NH, 0.0);
+        MatrixKernels.gemm(batchX, W1, batchZ1, count, NI, NH);
+        for (int n = 0; n < count * NH; n++) {
+            batchH[n] = sigmoid(batchZ1[n]);
+        }
+
+        // Output layer: Z2 = H * W2
+        Arrays.fill(batchZ2, 0, count * NO, 0.0);
+        MatrixKernels.gemm(batchH, W2, batchZ2, count, NH, NO);
+
+        // Apply respective activation function
+        if (outputActivation == ActivationFunctionType.SIGMOID) {
+            for (int n = 0; n < count * NO; n++) {
+                batchO[n] = sigmoid(batchZ2[n]);
+            }
+        } else if (outputActivation == ActivationFunctionType.LINEAR) {
+            System.arraycopy(batchZ2, 0, batchO, 0, count * NO);
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            for (int b = 0; b < count; b++) {
+                softmax(batchZ2, batchO, b * NO, NO);
+            }
+        }
+    }
+
+    // Backward propagation of the minibatch passed to the last forwardBatch call.
+    // Accumulates into dW1 and dW2 exactly like calling backward() once per row.
+    public double backwardBatch(double[][] targets) {
+        return backwardBatch(targets, 0);
+    }
+
+    // Same as above when the minibatch was taken from row from of the input matrix
+    public double backwardBatch(double[][] targets, int from) {
+        double error = 0.0;
+        int count = batchSize;
+
+        if (outputActivation == ActivationFunctionType.SIGMOID || outputActivation == ActivationFunctionType.LINEAR) {
+            for (int b = 0; b < count; b++) {
+                double[] target = targets[from + b];
+                int row = b * NO;
+                for (int k = 0; k < NO; k++) {
+                    double diff = batchO[row + k] - target[k];
+                    if (outputActivation == ActivationFunctionType.SIGMOID) {
+                        batchDeltaO[row + k] = diff * sigmoidDerivative(batchO[row + k]);
+                    } else {
+                        batchDeltaO[row + k] = diff;
+                    }
+                    error += 0.5 * diff * diff;
+                }
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            for (int b = 0; b < count; b++) {
+                double[] target = targets[from + b];
+                int row = b * NO;
+                for (int k = 0; k < NO; k++) {
+                    batchDeltaO[row + k] = batchO[row + k] - target[k];
+                    error -= target[k] * Math.log(batchO[row + k]);
+                }
+            }
+        }
+
+        backpropagateBatch(count);
+        return error;
+    }
+
+    // Same as above with one-hot targets given as class indices labels[from ..]; see backward(double[], int)
+    public double backwardBatch(int[] labels, int from) {
+        double error = 0.0;
+        int count = batchSize;
+        for (int b = 0; b < count; b++) {
+            checkLabel(labels[from + b]);
+        }
+
+        if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            System.arraycopy(batchO, 0, batchDeltaO, 0, count * NO);
+            for (int b = 0; b < count; b++) {
+                int label = b * NO + labels[from + b];
+                batchDeltaO[label] -= 1.0;
+                error -= Math.log(batchO[label]);
+            }
+        } else {
+            for (int b = 0; b < count; b++) {
+                error += squaredErrorDelta(batchO, b * NO, labels[from + b], batchDeltaO);
+            }
+        }
+
+        backpropagateBatch(count);
+        return error;
+    }
+
+    // Hidden layer deltas and weight change accumulation for count rows once batchDeltaO is set
+    private void backpropagateBatch(int count) {
+        // Hidden layer delta: deltaH = (deltaO * W2^T) .* sigmoid'(H)
+        Arrays.fill(batchDeltaH, 0, count * NH, 0.0);
+        MatrixKernels.gemmTransB(batchDeltaO, W2, batchDeltaH, count, NO, NH);
+        for (int n = 0; n < count * NH; n++) {
+            batchDeltaH[n] *= sigmoidDerivative(batchH[n]);
+        }
+
+        // Accumulate weight updates: dW2 += H^T * deltaO, dW1 += X^T * deltaH
+        MatrixKernels.gemmTransA(batchH, batchDeltaO, dW2, NH, count, NO);
+        MatrixKernels.gemmTransA(batchX, batchDeltaH, dW1, NI, count, NH);
+    }
+
+    // Grows the minibatch buffers so they hold at least count rows
+    void ensureBatchCapacity(int count) {
+        if (count <= batchCapacity) {
+            return;
+        }
+        batchCapacity = count;
+        batchX = new double[count * NI];
+        batchZ1 = new double[count * NH];
+        batchH = new double[count * NH];
+        batchZ2 = new double[count * NO];
+        batchO = new double[count * NO];
+        batchDeltaO = new double[count * NO];
+        batchDeltaH = new double[count * NH];
+    }
+
     // Update weights with accumulated updates
     public void updateWeights(double learningRate) {
         // Update W2
-        for (int j = 0; j < NH; j++) {
-            for (int k = 0; k < NO; k++) {
-                W2[j][k] -= learningRate * dW2[j][k];
-                dW2[j][k] = 0.0; // Reset accumulated update
-            }
+        for (int n = 0; n < W2.length; n++) {
+            W2[n] -= learningRate * dW2[n];
+            dW2[n] = 0.0; // Reset accumulated update
         }
 
         // Update W1
-        for (int i = 0; i < NI; i++) {
-            for (int j = 0; j < NH; j++) {
-                W1[i][j] -= learningRate * dW1[i][j];
-                dW1[i][j] = 0.0; // Reset
-            }
+        for (int n = 0; n < W1.length; n++) {
+            W1[n] -= learningRate * dW1[n];
+            dW1[n] = 0.0; // Reset
         }
     }
 
-    // Sigmoid activation function
-    private double sigmoid(double x) {
-        return 1.0 / (1.0 + Math.exp(-x));
+    // Same as above with an update rule other than plain gradient descent; W1 is slot 0, W2 slot 1
+    public void updateWeights(Optimizer optimizer, double learningRate) {
+        optimizer.beginStep();
+        optimizer.step(0, W1, dW1, learningRate);
+        optimizer.step(1, W2, dW2, learningRate);
+    }
+
+    // True for the output activations this class implements; RELU and TANH are DeepMLP only
+    static boolean supportsOutputActivation(ActivationFunctionType activation) {
+        return activation == ActivationFunctionType.SIGMOID || activation == ActivationFunctionType.LINEAR
+            || activation == ActivationFunctionType.SOFTMAX;
+    }
+
+    // Immutable copy of the current weights that any number of threads can predict with
+    public MLPSnapshot snapshot() {
+        return new MLPSnapshot(this);
+    }
+
+    // Sigmoid activation function; table-based with -Dmlp.fastActivations=true
+    static double sigmoid(double x) {
+        return FastActivations.ENABLED ? FastActivations.sigmoid(x) : 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    // e^x for the softmax terms, where x <= 0; polynomial-based with -Dmlp.fastActivations=true
+    static double softmaxExp(double x) {
+        return FastActivations.ENABLED ? FastActivations.exp(x) : Math.exp(x);
     }
 
     // Sigmoid derivative
-    private double sigmoidDerivative(double output) {
+    static double sigmoidDerivative(double output) {
         return output * (1.0 - output);
     }
 
-    // Softmax activation function
-    private double[] softmax(double[] z) {
+    // Softmax of z[offset .. offset + length) written to the same range of out
+    static void softmax(double[] z, double[] out, int offset, int length) {
         double max = Double.NEGATIVE_INFINITY;
-        for (double val : z) {
-            if (val > max) {
-                max = val;
+        for (int i = offset; i < offset + length; i++) {
+            if (z[i] > max) {
+                max = z[i];
             }
         }
         double sum = 0.0;
-        double[] expVals = new double[z.length];
-        for (int i = 0; i < z.length; i++) {
-            expVals[i] = Math.exp(z[i] - max);
-            sum += expVals[i];
+        for (int i = offset; i < offset + length; i++) {
+            out[i] = softmaxExp(z[i] - max);
+            sum += out[i];
+        }
+        for (int i = offset; i < offset + length; i++) {
+            out[i] /= sum;
         }
-        for (int i = 0; i < z.length; i++) {
-            expVals[i] /= sum;
+    }
+
+    // Index of the largest value, the first one on ties
+    public static int argMax(double[] array) {
+        int index = 0;
+        double max = array[0];
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] > max) {
+                max = array[i];
+                index = i;
+            }
         }
-        return expVals;
+        return index;
     }
 }
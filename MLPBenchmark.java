@@ -0,0 +1,274 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Benchmark suite for the MLP kernels (backwardLabel is backward with a class-index target), dataset loading and a full letter recognition epoch.
+//
+// JMH refuses benchmark classes in the default package, where all of this project's sources live,
+// so this harness follows the same protocol by hand: time-boxed warm-up iterations, then measured
+// iterations reported as mean +- standard deviation of throughput. Results are consumed through
+// a volatile sink so the JIT cannot drop the work. Like JMH's gc profiler it reports bytes
+// allocated per operation and the collections that ran during measurement. As JMH does with forks,
+// each size and output activation (and loadDataset) runs in its own JVM, started with this JVM's
+// options and class path, so JIT decisions made for one parameter set do not carry into the next.
+//
+// The project has no build file; compile and run from the repository root with
+//   javac *.java && java MLPBenchmark
+// JVM options such as -Xmx or -XX:-UseSuperWord given to the outer JVM are passed to every fork.
+//
+// Usage: java MLPBenchmark [sizes] [activations] [warmupIterations] [measurementIterations] [iterationMillis]
+//   sizes:       comma-separated NIxNHxNO, default 16x40x26,16x128x26,64x256x26
+//   activations: comma-separated ActivationFunctionType names, default SIGMOID,LINEAR,SOFTMAX
+// The epoch benchmark only runs for sizes with 16 inputs and 26 outputs, the shape of the letter data.
+public class MLPBenchmark {
+    // One benchmark body; runs the operation ops times and returns something derived from the results
+    interface Workload {
+        double run(int ops) throws Exception;
+    }
+
+    static final String SINGLE = "--single"; // first argument of a forked JVM
+
+    static volatile double sink;
+
+    static int warmupIterations = 3;
+    static int measurementIterations = 5;
+    static long iterationNanos = 1_000_000_000L;
+    static com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(SINGLE)) {
+            warmupIterations = Integer.parseInt(args[3]);
+            measurementIterations = Integer.parseInt(args[4]);
+            iterationNanos = Long.parseLong(args[5]) * 1_000_000L;
+            try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out))) {
+                runSingle(out, args[1], args[2]);
+            }
+            return;
+        }
+
+        String[] sizes = (args.length > 0 ? args[0] : "16x40x26,16x128x26,64x256x26").split(",");
+        String[] activations = (args.length > 1 ? args[1] : "SIGMOID,LINEAR,SOFTMAX").split(",");
+        if (args.length > 2) {
+            warmupIterations = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            measurementIterations = Integer.parseInt(args[3]);
+        }
+        if (args.length > 4) {
+            iterationNanos = Long.parseLong(args[4]) * 1_000_000L;
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("BenchmarkResults.txt"))) {
+            writer.write("MLP Benchmark Results\n");
+            writer.write("=====================\n");
+            writer.write("Java: " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + "\n");
+            writer.write("Processors: " + Runtime.getRuntime().availableProcessors() + "\n");
+            writer.write("Kernels: " + Kernels.KERNELS.name() + "\n");
+            writer.write("Activations: " + (FastActivations.ENABLED ? "fast" : "exact") + "\n");
+            writer.write("Warm-up: " + warmupIterations + " x " + iterationNanos / 1_000_000 + " ms, Measurement: "
+                + measurementIterations + " x " + iterationNanos / 1_000_000 + " ms, one JVM per size and output\n\n");
+            writer.write(String.format("%-14s %-12s %-8s %14s %12s %14s %12s %8s %8s\n",
+                "Benchmark", "Size", "Output", "ops/s", "+-", "ns/op", "B/op", "GCs", "GC ms"));
+
+            for (String size : sizes) {
+                for (String name : activations) {
+                    runForked(writer, size, name);
+                }
+            }
+            runForked(writer, "-", "-");
+            System.out.println("Results saved to BenchmarkResults.txt");
+        }
+    }
+
+    // Runs the benchmarks of one parameter set in a fresh JVM with this JVM's options and class path, so
+    // JIT profiles and heap state left by earlier parameter sets cannot skew it, and copies its rows
+    static void runForked(BufferedWriter writer, String size, String activation) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("MLPBenchmark");
+        command.add(SINGLE);
+        command.add(size);
+        command.add(activation);
+        command.add(Integer.toString(warmupIterations));
+        command.add(Integer.toString(measurementIterations));
+        command.add(Long.toString(iterationNanos / 1_000_000L));
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        try (BufferedReader rows = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String row;
+            while ((row = rows.readLine()) != null) {
+                writer.write(row + "\n");
+                writer.flush();
+                System.out.println(row);
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Benchmark JVM for " + size + " " + activation + " exited with status " + process.exitValue());
+        }
+    }
+
+    // Body of a forked JVM: runs every benchmark for one size and output activation, or loadDataset when
+    // both are "-", and writes the result rows to writer
+    static void runSingle(BufferedWriter writer, String size, String name) throws Exception {
+        if (size.equals("-")) {
+            run(writer, "loadDataset", "-", "-", ops -> {
+                double sum = 0;
+                for (int n = 0; n < ops; n++) {
+                    sum += LetterRecognitionExperiment.loadDataset("letter-recognition.data").size();
+                }
+                return sum;
+            });
+            return;
+        }
+
+        String[] dims = size.split("x");
+        int NI = Integer.parseInt(dims[0]);
+        int NH = Integer.parseInt(dims[1]);
+        int NO = Integer.parseInt(dims[2]);
+        ActivationFunctionType activation = ActivationFunctionType.valueOf(name);
+        Random rand = new Random(42);
+        double[] input = new double[NI];
+        double[] target = new double[NO];
+        for (int i = 0; i < NI; i++) {
+            input[i] = rand.nextDouble();
+        }
+        target[rand.nextInt(NO)] = 1.0;
+
+        MLP nn = new MLP(NI, NH, NO, activation, 42);
+        run(writer, "forward", size, name, ops -> {
+            double sum = 0;
+            for (int n = 0; n < ops; n++) {
+                nn.forward(input);
+                sum += nn.O[0];
+            }
+            return sum;
+        });
+
+        nn.forward(input);
+        run(writer, "backward", size, name, ops -> {
+            double sum = 0;
+            for (int n = 0; n < ops; n++) {
+                sum += nn.backward(input, target);
+            }
+            return sum;
+        });
+
+        int label = MLP.argMax(target);
+        run(writer, "backwardLabel", size, name, ops -> {
+            double sum = 0;
+            for (int n = 0; n < ops; n++) {
+                sum += nn.backward(input, label);
+            }
+            return sum;
+        });
+
+        run(writer, "updateWeights", size, name, ops -> {
+            for (int n = 0; n < ops; n++) {
+                nn.updateWeights(1e-9);
+            }
+            return nn.W1[0];
+        });
+
+        if (NI == 16 && NO == 26) {
+            ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+            ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, (int) (0.8 * dataset.size())));
+            MLP letters = new MLP(NI, NH, NO, activation, 42);
+            Trainer trainer = new Trainer(letters, 10, new Random(42));
+            run(writer, "letterEpoch", size, name, ops -> {
+                double sum = 0;
+                for (int n = 0; n < ops; n++) {
+                    sum += trainer.trainEpoch(trainingData, 0.1);
+                }
+                return sum;
+            });
+        }
+    }
+
+    // Warms up, measures and writes one result row
+    static void run(BufferedWriter writer, String benchmark, String size, String activation, Workload workload) throws Exception {
+        // Grow the batch of operations per timing check until it takes at least a millisecond
+        int batch = 1;
+        while (true) {
+            long start = System.nanoTime();
+            sink = workload.run(batch);
+            if (System.nanoTime() - start >= 1_000_000L || batch >= (1 << 24)) {
+                break;
+            }
+            batch *= 2;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(workload, batch);
+        }
+
+        double[] throughput = new double[measurementIterations];
+        long totalOps = 0;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < measurementIterations; i++) {
+            long start = System.nanoTime();
+            long ops = iteration(workload, batch);
+            throughput[i] = ops / ((System.nanoTime() - start) / 1e9);
+            totalOps += ops;
+        }
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        long gcs = gcCount() - gcCountBefore;
+        long gcTime = gcMillis() - gcMillisBefore;
+
+        double mean = 0;
+        for (double t : throughput) {
+            mean += t;
+        }
+        mean /= throughput.length;
+        double variance = 0;
+        for (double t : throughput) {
+            variance += (t - mean) * (t - mean);
+        }
+        double stddev = throughput.length > 1 ? Math.sqrt(variance / (throughput.length - 1)) : 0.0;
+
+        String row = String.format("%-14s %-12s %-8s %14.1f %12.1f %14.1f %12.1f %8d %8d\n",
+            benchmark, size, activation, mean, stddev, 1e9 / mean, (double) bytes / totalOps, gcs, gcTime);
+        writer.write(row);
+        writer.flush();
+    }
+
+    // Runs batches of the workload for one iteration's worth of time and returns the operations completed
+    static long iteration(Workload workload, int batch) throws Exception {
+        long ops = 0;
+        long start = System.nanoTime();
+        do {
+            sink = workload.run(batch);
+            ops += batch;
+        } while (System.nanoTime() - start < iterationNanos);
+        return ops;
+    }
+
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
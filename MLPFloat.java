@@ -0,0 +1,319 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Single-precision version of MLP with the same API shape.
+// Weights, weight changes, activations and inputs are all float, which halves memory traffic
+// in the memory-bound kernels. Errors are still summed in double to keep the reported loss stable.
+// It is a hand-maintained copy of MLP's training code, limited to what FloatPrecisionExperiment
+// needs. It does not have MLP's Kernels (so -Dmlp.simd does not apply), the zero-input skip, the
+// class-index backward pass, Optimizer updates, snapshots or checkpoints. Changes to MLP's
+// arithmetic have to be repeated here by hand.
+public class MLPFloat {
+    int NI, NH, NO; // Number of inputs, hidden units, and outputs
+    float[] W1, W2; // Weights in lower and upper layers, row-major: W1[i * NH + j], W2[j * NO + k]
+    float[] dW1, dW2; // weight changes applied to W1 and W2, same layout as the weights
+    float[] Z1, Z2, H, O; // Activations for lower layer, Activations for upper layer, values of hidden neurons (for dW2), output array
+    float[] deltaO, deltaH; // Error terms reused by every backward() call
+    ActivationFunctionType outputActivation;
+
+    // Minibatch buffers, one row per example: batchX[b * NI + i], batchO[b * NO + k], ...
+    int batchCapacity;
+    int batchSize; // rows filled by the last forwardBatch call
+    float[] batchX, batchZ1, batchH, batchZ2, batchO, batchDeltaO, batchDeltaH;
+
+    public MLPFloat(int numInputs, int numHidden, int numOutputs, ActivationFunctionType outputActivation) {
+        NI = numInputs;
+        NH = numHidden;
+        NO = numOutputs;
+        if (!MLP.supportsOutputActivation(outputActivation)) {
+            throw new IllegalArgumentException("Output activation " + outputActivation + " is only supported by DeepMLP");
+        }
+        this.outputActivation = outputActivation;
+
+        W1 = new float[NI * NH];
+        W2 = new float[NH * NO];
+        dW1 = new float[NI * NH];
+        dW2 = new float[NH * NO];
+        Z1 = new float[NH];
+        Z2 = new float[NO];
+        H = new float[NH];
+        O = new float[NO];
+        deltaO = new float[NO];
+        deltaH = new float[NH];
+
+        randomise();
+    }
+
+    // Same as above, but the initial weights are drawn from a seeded generator so runs are repeatable
+    public MLPFloat(int numInputs, int numHidden, int numOutputs, ActivationFunctionType outputActivation, long seed) {
+        this(numInputs, numHidden, numOutputs, outputActivation);
+        randomise(new Random(seed));
+    }
+
+    // Initialises W1 and W2 to small random values and dW1 and dW2 to zeros
+    public void randomise() {
+        randomise(new Random());
+    }
+
+    // Same as randomise(), drawing from the given generator
+    public void randomise(Random rand) {
+        double range = 1.0;
+        for (int n = 0; n < W1.length; n++) {
+            W1[n] = (float) (rand.nextDouble() * 2 * range - range);
+            dW1[n] = 0.0f;
+        }
+        for (int n = 0; n < W2.length; n++) {
+            W2[n] = (float) (rand.nextDouble() * 2 * range - range);
+            dW2[n] = 0.0f;
+        }
+    }
+
+    // Forward propagation; input[] processed to produce output in O[]
+    public void forward(float[] input) {
+        // Hidden layer; each input scales one contiguous row of W1
+        for (int j = 0; j < NH; j++) {
+            Z1[j] = 0.0f;
+        }
+        for (int i = 0; i < NI; i++) {
+            float x = input[i];
+            int row = i * NH;
+            for (int j = 0; j < NH; j++) {
+                Z1[j] += x * W1[row + j];
+            }
+        }
+        for (int j = 0; j < NH; j++) {
+            H[j] = sigmoid(Z1[j]);
+        }
+
+        // Output layer
+        for (int k = 0; k < NO; k++) {
+            Z2[k] = 0.0f;
+        }
+        for (int j = 0; j < NH; j++) {
+            float h = H[j];
+            int row = j * NO;
+            for (int k = 0; k < NO; k++) {
+                Z2[k] += h * W2[row + k];
+            }
+        }
+
+        // Apply respective activation function
+        if (outputActivation == ActivationFunctionType.SIGMOID) {
+            for (int k = 0; k < NO; k++) {
+                O[k] = sigmoid(Z2[k]);
+            }
+        } else if (outputActivation == ActivationFunctionType.LINEAR) {
+            for (int k = 0; k < NO; k++) {
+                O[k] = Z2[k];
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            softmax(Z2, O, 0, NO);
+        }
+    }
+
+    // Backward propagation
+    public double backward(float[] input, float[] target) {
+        double error = 0.0;
+
+        if (outputActivation == ActivationFunctionType.SIGMOID || outputActivation == ActivationFunctionType.LINEAR) {
+            for (int k = 0; k < NO; k++) {
+                float diff = O[k] - target[k];
+                if (outputActivation == ActivationFunctionType.SIGMOID) {
+                    deltaO[k] = diff * sigmoidDerivative(O[k]);
+                    error += 0.5 * diff * diff; // Mean Squared Error
+                } else if (outputActivation == ActivationFunctionType.LINEAR) {
+                    deltaO[k] = diff;
+                    error += 0.5 * diff * diff;
+                }
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            // Cross-Entropy Loss
+            for (int k = 0; k < NO; k++) {
+                deltaO[k] = O[k] - target[k]; // Cross-Entropy derivative
+                error -= target[k] * Math.log(O[k]);
+            }
+        }
+
+        // Hidden layer delta
+        for (int j = 0; j < NH; j++) {
+            int row = j * NO;
+            deltaH[j] = 0.0f;
+            for (int k = 0; k < NO; k++) {
+                deltaH[j] += deltaO[k] * W2[row + k];
+            }
+            deltaH[j] *= sigmoidDerivative(H[j]);
+        }
+
+        // Accumulate W2 weight updates
+        for (int j = 0; j < NH; j++) {
+            float h = H[j];
+            int row = j * NO;
+            for (int k = 0; k < NO; k++) {
+                dW2[row + k] += deltaO[k] * h;
+            }
+        }
+
+        // W1
+        for (int i = 0; i < NI; i++) {
+            float x = input[i];
+            int row = i * NH;
+            for (int j = 0; j < NH; j++) {
+                dW1[row + j] += deltaH[j] * x;
+            }
+        }
+
+        return error;
+    }
+
+    // Forward propagation of a whole minibatch; row b of the result is batchO[b * NO .. b * NO + NO)
+    public void forwardBatch(float[][] inputs) {
+        forwardBatch(inputs, inputs.length);
+    }
+
+    // Forward propagation of the first count rows of inputs
+    public void forwardBatch(float[][] inputs, int count) {
+        forwardBatch(inputs, 0, count);
+    }
+
+    // Forward propagation of rows from .. from + count of inputs
+    public void forwardBatch(float[][] inputs, int from, int count) {
+        ensureBatchCapacity(count);
+        batchSize = count;
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(inputs[from + b], 0, batchX, b * NI, NI);
+        }
+
+        // Hidden layer: Z1 = X * W1
+        Arrays.fill(batchZ1, 0, count * NH, 0.0f);
+        MatrixKernels.gemm(batchX, W1, batchZ1, count, NI, NH);
+        for (int n = 0; n < count * NH; n++) {
+            batchH[n] = sigmoid(batchZ1[n]);
+        }
+
+        // Output layer: Z2 = H * W2
+        Arrays.fill(batchZ2, 0, count * NO, 0.0f);
+        MatrixKernels.gemm(batchH, W2, batchZ2, count, NH, NO);
+
+        // Apply respective activation function
+        if (outputActivation == ActivationFunctionType.SIGMOID) {
+            for (int n = 0; n < count * NO; n++) {
+                batchO[n] = sigmoid(batchZ2[n]);
+            }
+        } else if (outputActivation == ActivationFunctionType.LINEAR) {
+            System.arraycopy(batchZ2, 0, batchO, 0, count * NO);
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            for (int b = 0; b < count; b++) {
+                softmax(batchZ2, batchO, b * NO, NO);
+            }
+        }
+    }
+
+    // Backward propagation of the minibatch passed to the last forwardBatch call.
+    // Accumulates into dW1 and dW2 exactly like calling backward() once per row.
+    public double backwardBatch(float[][] targets) {
+        return backwardBatch(targets, 0);
+    }
+
+    // Same as above when the minibatch was taken from row from of the input matrix
+    public double backwardBatch(float[][] targets, int from) {
+        double error = 0.0;
+        int count = batchSize;
+
+        if (outputActivation == ActivationFunctionType.SIGMOID || outputActivation == ActivationFunctionType.LINEAR) {
+            for (int b = 0; b < count; b++) {
+                float[] target = targets[from + b];
+                int row = b * NO;
+                for (int k = 0; k < NO; k++) {
+                    float diff = batchO[row + k] - target[k];
+                    if (outputActivation == ActivationFunctionType.SIGMOID) {
+                        batchDeltaO[row + k] = diff * sigmoidDerivative(batchO[row + k]);
+                    } else {
+                        batchDeltaO[row + k] = diff;
+                    }
+                    error += 0.5 * diff * diff;
+                }
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            for (int b = 0; b < count; b++) {
+                float[] target = targets[from + b];
+                int row = b * NO;
+                for (int k = 0; k < NO; k++) {
+                    batchDeltaO[row + k] = batchO[row + k] - target[k];
+                    error -= target[k] * Math.log(batchO[row + k]);
+                }
+            }
+        }
+
+        // Hidden layer delta: deltaH = (deltaO * W2^T) .* sigmoid'(H)
+        Arrays.fill(batchDeltaH, 0, count * NH, 0.0f);
+        MatrixKernels.gemmTransB(batchDeltaO, W2, batchDeltaH, count, NO, NH);
+        for (int n = 0; n < count * NH; n++) {
+            batchDeltaH[n] *= sigmoidDerivative(batchH[n]);
+        }
+
+        // Accumulate weight updates: dW2 += H^T * deltaO, dW1 += X^T * deltaH
+        MatrixKernels.gemmTransA(batchH, batchDeltaO, dW2, NH, count, NO);
+        MatrixKernels.gemmTransA(batchX, batchDeltaH, dW1, NI, count, NH);
+
+        return error;
+    }
+
+    // Grows the minibatch buffers so they hold at least count rows
+    void ensureBatchCapacity(int count) {
+        if (count <= batchCapacity) {
+            return;
+        }
+        batchCapacity = count;
+        batchX = new float[count * NI];
+        batchZ1 = new float[count * NH];
+        batchH = new float[count * NH];
+        batchZ2 = new float[count * NO];
+        batchO = new float[count * NO];
+        batchDeltaO = new float[count * NO];
+        batchDeltaH = new float[count * NH];
+    }
+
+    // Update weights with accumulated updates
+    public void updateWeights(double learningRate) {
+        float rate = (float) learningRate;
+        // Update W2
+        for (int n = 0; n < W2.length; n++) {
+            W2[n] -= rate * dW2[n];
+            dW2[n] = 0.0f; // Reset accumulated update
+        }
+
+        // Update W1
+        for (int n = 0; n < W1.length; n++) {
+            W1[n] -= rate * dW1[n];
+            dW1[n] = 0.0f; // Reset
+        }
+    }
+
+    // Sigmoid activation function
+    static float sigmoid(float x) {
+        return (float) MLP.sigmoid(x);
+    }
+
+    // Sigmoid derivative
+    static float sigmoidDerivative(float output) {
+        return output * (1.0f - output);
+    }
+
+    // Softmax of z[offset .. offset + length) written to the same range of out
+    static void softmax(float[] z, float[] out, int offset, int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = offset; i < offset + length; i++) {
+            if (z[i] > max) {
+                max = z[i];
+            }
+        }
+        float sum = 0.0f;
+        for (int i = offset; i < offset + length; i++) {
+            out[i] = (float) MLP.softmaxExp(z[i] - max);
+            sum += out[i];
+        }
+        for (int i = offset; i < offset + length; i++) {
+            out[i] /= sum;
+        }
+    }
+}
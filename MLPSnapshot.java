@@ -0,0 +1,65 @@
+// Read-only copy of an MLP's weights for inference.
+// The weights are never written after construction and predict() keeps all intermediate
+// values in caller-supplied or per-thread scratch buffers, so one snapshot can serve any
+// number of concurrent callers without locking.
+public final class MLPSnapshot {
+    final int NI, NH, NO;
+    final ActivationFunctionType outputActivation;
+    private final double[] W1, W2; // same row-major layout as MLP
+    private final ThreadLocal<double[]> hiddenScratch;
+
+    MLPSnapshot(MLP nn) {
+        this(nn.NI, nn.NH, nn.NO, nn.outputActivation, nn.W1.clone(), nn.W2.clone());
+    }
+
+    // Takes ownership of W1 and W2, which must not be modified afterwards
+    MLPSnapshot(int numInputs, int numHidden, int numOutputs, ActivationFunctionType outputActivation, double[] W1, double[] W2) {
+        NI = numInputs;
+        NH = numHidden;
+        NO = numOutputs;
+        this.outputActivation = outputActivation;
+        this.W1 = W1;
+        this.W2 = W2;
+        hiddenScratch = ThreadLocal.withInitial(() -> new double[NH]);
+    }
+
+    // Computes the network output for input into output (length NO) and returns output.
+    // Uses a per-thread hidden buffer; prefer the overload below on short-lived threads.
+    public double[] predict(double[] input, double[] output) {
+        return predict(input, output, hiddenScratch.get());
+    }
+
+    // Same as above with a caller-supplied hidden buffer of length NH
+    public double[] predict(double[] input, double[] output, double[] hidden) {
+        // Hidden layer
+        for (int j = 0; j < NH; j++) {
+            hidden[j] = 0.0;
+        }
+        for (int i = 0; i < NI; i++) {
+            if (input[i] != 0.0) {
+                Kernels.KERNELS.axpy(input[i], W1, i * NH, hidden, 0, NH);
+            }
+        }
+        for (int j = 0; j < NH; j++) {
+            hidden[j] = MLP.sigmoid(hidden[j]);
+        }
+
+        // Output layer
+        for (int k = 0; k < NO; k++) {
+            output[k] = 0.0;
+        }
+        for (int j = 0; j < NH; j++) {
+            Kernels.KERNELS.axpy(hidden[j], W2, j * NO, output, 0, NO);
+        }
+
+        // Apply respective activation function
+        if (outputActivation == ActivationFunctionType.SIGMOID) {
+            for (int k = 0; k < NO; k++) {
+                output[k] = MLP.sigmoid(output[k]);
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            MLP.softmax(output, output, 0, NO);
+        }
+        return output;
+    }
+}
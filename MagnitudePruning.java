@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+// Magnitude pruning of a trained MLP.
+// prune() zeroes the smallest weights of W1 and of W2, each to the same target fraction, and
+// returns which weights were kept, indexed like the optimizer slots (0 = W1, 1 = W2). To fine-tune
+// the pruned network, train it through a MaskedOptimizer with that mask so pruned weights stay
+// zero. SparseMLP then stores only the surviving weights.
+public class MagnitudePruning {
+    // Zeroes the fraction sparsity (0 to 1) of smallest-magnitude weights in each of W1 and W2; returns the kept mask
+    public static boolean[][] prune(MLP nn, double sparsity) {
+        if (sparsity < 0.0 || sparsity > 1.0) {
+            throw new IllegalArgumentException("sparsity must be between 0 and 1");
+        }
+        return new boolean[][] {prune(nn.W1, sparsity), prune(nn.W2, sparsity)};
+    }
+
+    // Fraction of weights in W1 and W2 that are exactly zero
+    public static double sparsity(MLP nn) {
+        int zeros = 0;
+        for (double w : nn.W1) {
+            zeros += w == 0.0 ? 1 : 0;
+        }
+        for (double w : nn.W2) {
+            zeros += w == 0.0 ? 1 : 0;
+        }
+        return (double) zeros / (nn.W1.length + nn.W2.length);
+    }
+
+    // Zeroes the round(sparsity * length) smallest |w|, breaking ties by position
+    private static boolean[] prune(double[] weights, double sparsity) {
+        int count = (int) Math.round(sparsity * weights.length);
+        Integer[] order = new Integer[weights.length];
+        for (int n = 0; n < order.length; n++) {
+            order[n] = n;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(Math.abs(weights[a]), Math.abs(weights[b])));
+
+        boolean[] keep = new boolean[weights.length];
+        Arrays.fill(keep, true);
+        for (int n = 0; n < count; n++) {
+            keep[order[n]] = false;
+            weights[order[n]] = 0.0;
+        }
+        return keep;
+    }
+}
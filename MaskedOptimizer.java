@@ -0,0 +1,40 @@
+// Wraps another optimizer and keeps pruned weights at zero, for fine-tuning after MagnitudePruning.
+// keep[slot][n] is false for every weight n of a slot that must stay zero; slots without a mask
+// (beyond keep.length or null) are updated normally. The wrapped optimizer's state is passed through.
+public class MaskedOptimizer implements Optimizer {
+    Optimizer optimizer;
+    boolean[][] keep;
+
+    public MaskedOptimizer(Optimizer optimizer, boolean[][] keep) {
+        this.optimizer = optimizer;
+        this.keep = keep;
+    }
+
+    @Override
+    public void beginStep() {
+        optimizer.beginStep();
+    }
+
+    @Override
+    public void step(int slot, double[] weights, double[] grads, double learningRate) {
+        optimizer.step(slot, weights, grads, learningRate);
+        if (slot < keep.length && keep[slot] != null) {
+            boolean[] mask = keep[slot];
+            for (int n = 0; n < weights.length; n++) {
+                if (!mask[n]) {
+                    weights[n] = 0.0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[][] state() {
+        return optimizer.state();
+    }
+
+    @Override
+    public void restoreState(double[][] state) {
+        optimizer.restoreState(state);
+    }
+}
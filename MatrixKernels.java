@@ -0,0 +1,126 @@
+// Cache-blocked dense matrix kernels used by the minibatch paths in MLP.
+// All matrices are flat row-major arrays and every kernel accumulates into C,
+// so callers zero C first when they want a plain product. The double versions run their
+// innermost loops through Kernels.KERNELS so they pick up the SIMD path when it is available,
+// and skip the row updates scaled by an exact zero in A, which add nothing: zero input features
+// and the outputs of ReLU layers cost no work.
+final class MatrixKernels {
+    // Edge length of the square tiles; 64 doubles = 512 bytes per tile row
+    static final int BLOCK = 64;
+
+    private MatrixKernels() {
+    }
+
+    // C[m x n] += A[m x k] * B[k x n]
+    static void gemm(double[] a, double[] b, double[] c, int m, int k, int n) {
+        for (int pp = 0; pp < k; pp += BLOCK) {
+            int pEnd = Math.min(pp + BLOCK, k);
+            for (int jj = 0; jj < n; jj += BLOCK) {
+                int jEnd = Math.min(jj + BLOCK, n);
+                for (int i = 0; i < m; i++) {
+                    int aRow = i * k;
+                    int cRow = i * n;
+                    for (int p = pp; p < pEnd; p++) {
+                        if (a[aRow + p] != 0.0) {
+                            Kernels.KERNELS.axpy(a[aRow + p], b, p * n + jj, c, cRow + jj, jEnd - jj);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // C[m x n] += A[m x k] * B[n x k]^T
+    static void gemmTransB(double[] a, double[] b, double[] c, int m, int k, int n) {
+        for (int jj = 0; jj < n; jj += BLOCK) {
+            int jEnd = Math.min(jj + BLOCK, n);
+            for (int i = 0; i < m; i++) {
+                int aRow = i * k;
+                int cRow = i * n;
+                for (int j = jj; j < jEnd; j++) {
+                    c[cRow + j] += Kernels.KERNELS.dot(a, aRow, b, j * k, k);
+                }
+            }
+        }
+    }
+
+    // C[m x n] += A[k x m]^T * B[k x n]
+    static void gemmTransA(double[] a, double[] b, double[] c, int m, int k, int n) {
+        for (int ii = 0; ii < m; ii += BLOCK) {
+            int iEnd = Math.min(ii + BLOCK, m);
+            for (int jj = 0; jj < n; jj += BLOCK) {
+                int jEnd = Math.min(jj + BLOCK, n);
+                for (int p = 0; p < k; p++) {
+                    int aRow = p * m;
+                    int bRow = p * n;
+                    for (int i = ii; i < iEnd; i++) {
+                        if (a[aRow + i] != 0.0) {
+                            Kernels.KERNELS.axpy(a[aRow + i], b, bRow + jj, c, i * n + jj, jEnd - jj);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // C[m x n] += A[m x k] * B[k x n], single precision for MLPFloat
+    static void gemm(float[] a, float[] b, float[] c, int m, int k, int n) {
+        for (int pp = 0; pp < k; pp += BLOCK) {
+            int pEnd = Math.min(pp + BLOCK, k);
+            for (int jj = 0; jj < n; jj += BLOCK) {
+                int jEnd = Math.min(jj + BLOCK, n);
+                for (int i = 0; i < m; i++) {
+                    int aRow = i * k;
+                    int cRow = i * n;
+                    for (int p = pp; p < pEnd; p++) {
+                        float aip = a[aRow + p];
+                        int bRow = p * n;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[cRow + j] += aip * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // C[m x n] += A[m x k] * B[n x k]^T, single precision
+    static void gemmTransB(float[] a, float[] b, float[] c, int m, int k, int n) {
+        for (int jj = 0; jj < n; jj += BLOCK) {
+            int jEnd = Math.min(jj + BLOCK, n);
+            for (int i = 0; i < m; i++) {
+                int aRow = i * k;
+                int cRow = i * n;
+                for (int j = jj; j < jEnd; j++) {
+                    int bRow = j * k;
+                    float sum = 0.0f;
+                    for (int p = 0; p < k; p++) {
+                        sum += a[aRow + p] * b[bRow + p];
+                    }
+                    c[cRow + j] += sum;
+                }
+            }
+        }
+    }
+
+    // C[m x n] += A[k x m]^T * B[k x n], single precision
+    static void gemmTransA(float[] a, float[] b, float[] c, int m, int k, int n) {
+        for (int ii = 0; ii < m; ii += BLOCK) {
+            int iEnd = Math.min(ii + BLOCK, m);
+            for (int jj = 0; jj < n; jj += BLOCK) {
+                int jEnd = Math.min(jj + BLOCK, n);
+                for (int p = 0; p < k; p++) {
+                    int aRow = p * m;
+                    int bRow = p * n;
+                    for (int i = ii; i < iEnd; i++) {
+                        float api = a[aRow + i];
+                        int cRow = i * n;
+                        for (int j = jj; j < jEnd; j++) {
+                            c[cRow + j] += api * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
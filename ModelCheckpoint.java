@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Binary save/load of a complete MLP, optionally with optimizer state so training can resume.
+//
+// Layout (little-endian):
+//   int magic 'MLPC', int version, int NI, int NH, int NO, int outputActivation ordinal,
+//   int number of optimizer state arrays, int reserved (keeps the doubles 8-byte aligned)
+//   W1 (NI * NH doubles), W2 (NH * NO doubles)
+//   per optimizer state array: long length, then that many doubles (length 0 for a null array,
+//     such as a slot the optimizer never stepped)
+//   long CRC32 of every preceding byte
+//
+// read() memory-maps the file, verifies the checksum and bulk-copies the weights out of the mapping.
+public class ModelCheckpoint {
+    static final int MAGIC = 0x43504C4D; // "MLPC" when read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    MLP model;
+    double[][] optimizerState; // empty if the checkpoint was saved without one
+
+    private ModelCheckpoint(MLP model, double[][] optimizerState) {
+        this.model = model;
+        this.optimizerState = optimizerState;
+    }
+
+    // Saves nn and, if not null, the optimizer state arrays. The file is written under a
+    // temporary name and then moved into place, so a crash never leaves a half-written checkpoint.
+    public static void write(String filename, MLP nn, double[][] optimizerState) throws IOException {
+        if (optimizerState == null) {
+            optimizerState = new double[0][];
+        }
+        long size = HEADER_BYTES + 8L * (nn.W1.length + nn.W2.length) + 8;
+        for (double[] state : optimizerState) {
+            size += 8L + (state == null ? 0 : 8L * state.length);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Model too large for a checkpoint: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(nn.NI);
+        buffer.putInt(nn.NH);
+        buffer.putInt(nn.NO);
+        buffer.putInt(nn.outputActivation.ordinal());
+        buffer.putInt(optimizerState.length);
+        buffer.putInt(0);
+        putDoubles(buffer, nn.W1);
+        putDoubles(buffer, nn.W2);
+        for (double[] state : optimizerState) {
+            buffer.putLong(state == null ? 0 : state.length);
+            if (state != null) {
+                putDoubles(buffer, state);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Loads a checkpoint written by write(); the returned model can be trained further or snapshotted
+    public static ModelCheckpoint read(String filename) throws IOException {
+        ByteBuffer buffer = map(filename);
+        int NI = buffer.getInt(8);
+        int NH = buffer.getInt(12);
+        int NO = buffer.getInt(16);
+        ActivationFunctionType activation = ActivationFunctionType.values()[buffer.getInt(20)];
+        int stateCount = buffer.getInt(24);
+
+        MLP nn = new MLP(NI, NH, NO, activation);
+        buffer.position(HEADER_BYTES);
+        getDoubles(buffer, nn.W1);
+        getDoubles(buffer, nn.W2);
+        double[][] optimizerState = new double[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            long length = buffer.getLong();
+            if (length < 0 || length > (buffer.remaining() - 8) / 8) {
+                throw new IOException("Corrupt optimizer state in " + filename);
+            }
+            optimizerState[s] = new double[(int) length];
+            getDoubles(buffer, optimizerState[s]);
+        }
+        return new ModelCheckpoint(nn, optimizerState);
+    }
+
+    // Loads only what inference needs, straight into an immutable snapshot
+    public static MLPSnapshot readSnapshot(String filename) throws IOException {
+        ByteBuffer buffer = map(filename);
+        int NI = buffer.getInt(8);
+        int NH = buffer.getInt(12);
+        int NO = buffer.getInt(16);
+        ActivationFunctionType activation = ActivationFunctionType.values()[buffer.getInt(20)];
+
+        double[] W1 = new double[NI * NH];
+        double[] W2 = new double[NH * NO];
+        buffer.position(HEADER_BYTES);
+        getDoubles(buffer, W1);
+        getDoubles(buffer, W2);
+        return new MLPSnapshot(NI, NH, NO, activation, W1, W2);
+    }
+
+    // Maps the file read-only and checks magic, version, sizes and checksum
+    private static ByteBuffer map(String filename) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + 8 || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a model checkpoint: " + filename);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a model checkpoint: " + filename);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + " in " + filename);
+        }
+
+        int end = buffer.capacity() - 8;
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.limit(end);
+        crc.update(body);
+        if (crc.getValue() != buffer.getLong(end)) {
+            throw new IOException("Checksum mismatch in " + filename);
+        }
+
+        int NI = buffer.getInt(8);
+        int NH = buffer.getInt(12);
+        int NO = buffer.getInt(16);
+        int activation = buffer.getInt(20);
+        long weights = (long) NI * NH + (long) NH * NO;
+        if (NI <= 0 || NH <= 0 || NO <= 0 || weights * 8 > end - HEADER_BYTES
+                || activation < 0 || activation >= ActivationFunctionType.values().length) {
+            throw new IOException("Corrupt header in " + filename);
+        }
+        if (!MLP.supportsOutputActivation(ActivationFunctionType.values()[activation])) {
+            throw new IOException("Unsupported output activation " + ActivationFunctionType.values()[activation] + " in " + filename);
+        }
+        return buffer;
+    }
+
+    private static void putDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    private static void getDoubles(ByteBuffer buffer, double[] values) {
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        doubles.get(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+}
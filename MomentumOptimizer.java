@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+// Gradient descent with classical or Nesterov momentum.
+// velocity = momentum * velocity + grad, then
+//   classical: w -= rate * velocity
+//   Nesterov:  w -= rate * (grad + momentum * velocity)
+public class MomentumOptimizer implements Optimizer {
+    double momentum;
+    boolean nesterov;
+    double[][] velocity = new double[0][]; // one array per slot, allocated on first use
+
+    public MomentumOptimizer(double momentum, boolean nesterov) {
+        this.momentum = momentum;
+        this.nesterov = nesterov;
+    }
+
+    @Override
+    public void beginStep() {
+    }
+
+    @Override
+    public void step(int slot, double[] weights, double[] grads, double learningRate) {
+        if (slot >= velocity.length) {
+            velocity = Arrays.copyOf(velocity, slot + 1);
+        }
+        if (velocity[slot] == null) {
+            velocity[slot] = new double[weights.length];
+        }
+        double[] v = velocity[slot];
+        for (int n = 0; n < weights.length; n++) {
+            double g = grads[n];
+            v[n] = momentum * v[n] + g;
+            weights[n] -= learningRate * (nesterov ? g + momentum * v[n] : v[n]);
+            grads[n] = 0.0;
+        }
+    }
+
+    @Override
+    public double[][] state() {
+        double[][] state = new double[velocity.length][];
+        for (int s = 0; s < velocity.length; s++) {
+            state[s] = velocity[s] == null ? null : velocity[s].clone();
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(double[][] state) {
+        velocity = new double[state.length][];
+        for (int s = 0; s < state.length; s++) {
+            velocity[s] = state[s] == null || state[s].length == 0 ? null : state[s].clone();
+        }
+    }
+}
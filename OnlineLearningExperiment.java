@@ -0,0 +1,170 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+// Online training of the letter recognition network with concurrent readers.
+// For each publish cadence a producer thread streams the training rows, reshuffled per pass, into
+// an OnlineTrainer while reader threads keep predicting test rows from trainer.current(). Reports
+// training throughput, the number of publishes, the copy time per publish and its share of the
+// training time, reader throughput, the slowest single read and the accuracy of the final snapshot.
+// Every reader also re-predicts a probe row on each new snapshot and checks it against a second
+// prediction at the end, which would differ if a published snapshot were ever modified.
+// Finally a trainer whose last batch (the one ending at close()) fails must still close and report
+// the error; the experiment exits with status 1 if close() hangs or returns normally.
+// Results go to OnlineLearningExperimentResults.txt.
+// Usage: java OnlineLearningExperiment [passes] [readers] [batchSize]
+public class OnlineLearningExperiment {
+    public static void main(String[] args) throws Exception {
+        int passes = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int[] cadences = {1, 10, 100, 1000}; // updates per publish
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+        boolean failureReported;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("OnlineLearningExperimentResults.txt"))) {
+            writer.write("Online Learning Experiment Results\n");
+            writer.write("==================================\n");
+            writer.write("Model: 16-40-26 SOFTMAX, batch " + batchSize + ", learning rate 0.1, " + passes
+                + " passes over " + trainingData.size() + " streamed rows\n");
+            writer.write("Readers: " + readers + ", processors: " + Runtime.getRuntime().availableProcessors() + "\n\n");
+            writer.write(String.format("%8s %12s %10s %12s %12s %8s %12s %12s %10s %10s\n", "Publish", "Examples/s",
+                "Publishes", "Copy us", "Max copy us", "Copy %", "Reads/s", "Max read us", "Test acc %", "Consistent"));
+
+            for (int publishEvery : cadences) {
+                MLP nn = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+                Reader[] readerThreads = new Reader[readers];
+                long start;
+                OnlineTrainer trainer = new OnlineTrainer(nn, batchSize, 0.1, publishEvery, 1024);
+                try {
+                    for (int r = 0; r < readers; r++) {
+                        readerThreads[r] = new Reader(trainer, testData, r);
+                        readerThreads[r].start();
+                    }
+                    start = System.nanoTime();
+                    Random rand = new Random(42);
+                    ArrayList<TrainingExample> stream = new ArrayList<>(trainingData);
+                    for (int pass = 0; pass < passes; pass++) {
+                        Collections.shuffle(stream, rand);
+                        for (TrainingExample example : stream) {
+                            trainer.submit(example);
+                        }
+                    }
+                } finally {
+                    trainer.close();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                long reads = 0;
+                long maxRead = 0;
+                boolean consistent = true;
+                for (Reader reader : readerThreads) {
+                    reader.running = false;
+                    reader.join();
+                    reads += reader.reads;
+                    maxRead = Math.max(maxRead, reader.maxReadNanos);
+                    consistent &= reader.consistent;
+                }
+
+                MLPSnapshot model = trainer.current();
+                double[] output = new double[model.NO];
+                int correct = 0;
+                for (TrainingExample example : testData) {
+                    model.predict(example.input, output);
+                    correct += MLP.argMax(output) == example.label ? 1 : 0;
+                }
+
+                String row = String.format("%8d %12.0f %10d %12.2f %12.2f %8.2f %12.0f %12.1f %10.2f %10s\n",
+                    publishEvery, trainer.examples / seconds, trainer.publishes, trainer.meanPublishNanos() / 1000.0,
+                    trainer.maxPublishNanos / 1000.0, 100.0 * trainer.publishNanos / (trainer.trainNanos + trainer.publishNanos),
+                    reads / seconds, maxRead / 1000.0, 100.0 * correct / testData.size(), consistent ? "yes" : "NO");
+                writer.write(row);
+                writer.flush();
+                System.out.print(row);
+            }
+
+            failureReported = checkFailingLastBatch(writer);
+        }
+        System.out.println("Results saved to OnlineLearningExperimentResults.txt");
+        if (!failureReported) {
+            System.err.println("OnlineTrainer did not report a failure in its last batch");
+            System.exit(1);
+        }
+    }
+
+    // Submits a good example and one with a short input, then closes from another thread; returns
+    // true if close() finished within 5 seconds with the training error as the cause
+    static boolean checkFailingLastBatch(BufferedWriter writer) throws Exception {
+        MLP nn = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+        OnlineTrainer trainer = new OnlineTrainer(nn, 10, 0.1, 1, 16);
+        Throwable[] thrown = new Throwable[1];
+        Thread closer = new Thread(() -> {
+            try {
+                trainer.submit(new TrainingExample(new double[16], new double[26]));
+                trainer.submit(new TrainingExample(new double[5], new double[26]));
+                trainer.close();
+            } catch (Throwable e) {
+                thrown[0] = e;
+            }
+        }, "failing-close");
+        closer.setDaemon(true);
+        long start = System.nanoTime();
+        closer.start();
+        closer.join(5000);
+        boolean finished = !closer.isAlive();
+        boolean reported = finished && thrown[0] instanceof IllegalStateException && thrown[0].getCause() != null;
+        writer.write(String.format("\nFailing last batch: close() %s, error %s\n",
+            finished ? String.format("returned after %.1f ms", (System.nanoTime() - start) / 1e6) : "still blocked after 5 s",
+            reported ? "reported (" + thrown[0].getCause().getClass().getSimpleName() + ")" : "NOT reported"));
+        return reported;
+    }
+
+    // Predicts test rows from the latest snapshot until stopped
+    static class Reader extends Thread {
+        OnlineTrainer trainer;
+        ArrayList<TrainingExample> rows;
+        int offset;
+        volatile boolean running = true;
+        long reads, maxReadNanos;
+        boolean consistent = true;
+
+        Reader(OnlineTrainer trainer, ArrayList<TrainingExample> rows, int offset) {
+            this.trainer = trainer;
+            this.rows = rows;
+            this.offset = offset;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            double[] output = new double[trainer.nn.NO];
+            double[] probe = rows.get(0).input;
+            ArrayList<MLPSnapshot> seen = new ArrayList<>();
+            ArrayList<double[]> probeOutputs = new ArrayList<>();
+            MLPSnapshot last = null;
+            int n = offset * 7919;
+            while (running) {
+                long start = System.nanoTime();
+                MLPSnapshot model = trainer.current();
+                model.predict(rows.get(n++ % rows.size()).input, output);
+                maxReadNanos = Math.max(maxReadNanos, System.nanoTime() - start);
+                reads++;
+                if (model != last && seen.size() < 64) {
+                    seen.add(model);
+                    probeOutputs.add(model.predict(probe, new double[output.length]));
+                }
+                last = model;
+            }
+            // A snapshot that was modified after it was published would now give a different probe output
+            for (int s = 0; s < seen.size(); s++) {
+                consistent &= java.util.Arrays.equals(probeOutputs.get(s), seen.get(s).predict(probe, output));
+            }
+        }
+    }
+}
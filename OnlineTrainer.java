@@ -0,0 +1,202 @@
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Trains an MLP in the background from a continuous stream of examples and publishes the weights
+// for concurrent readers.
+//
+// Producers hand examples to submit(), which blocks while the bounded queue is full. A single
+// trainer thread takes the oldest example plus whatever else is already queued, up to batchSize,
+// and runs one minibatch update (the class-index path when every example has a label). After
+// every publishEvery updates it copies the weights into a new MLPSnapshot and swaps it into an
+// AtomicReference. Readers call current() and predict with the snapshot they got: it is never
+// written again, so they always see one consistent set of weights and never wait for the trainer.
+// Only the trainer thread touches the MLP.
+//
+// A smaller publishEvery gives fresher snapshots at the cost of more copying; each publish copies
+// NI * NH + NH * NO doubles. The time spent copying is recorded next to the training time.
+//
+// If training throws, the trainer thread records the error and from then on discards whatever is
+// queued, so producers never block forever; submit() and close() rethrow it as the cause of an
+// IllegalStateException.
+public class OnlineTrainer implements AutoCloseable {
+    private static final TrainingExample END = new TrainingExample(new double[0], new double[0]);
+
+    MLP nn;
+    int batchSize;
+    double learningRate;
+    int publishEvery;
+    Optimizer optimizer; // null for plain gradient descent
+    LinkedBlockingQueue<TrainingExample> queue;
+    AtomicReference<MLPSnapshot> published;
+    double[][] batchInputs, batchTargets;
+    int[] batchLabels;
+    Thread trainer;
+    ReentrantLock submitLock = new ReentrantLock(); // makes the closed check and the put one step
+    volatile boolean closed;
+    volatile Throwable failure; // what stopped the trainer thread, if anything
+
+    // Statistics written by the trainer thread, read approximately while it runs
+    volatile long examples, updates, publishes;
+    volatile long trainNanos, publishNanos, maxPublishNanos;
+
+    // Starts training nn, publishing after every publishEvery updates; queueCapacity bounds the examples waiting
+    public OnlineTrainer(MLP nn, int batchSize, double learningRate, int publishEvery, int queueCapacity) {
+        this(nn, batchSize, learningRate, publishEvery, queueCapacity, null);
+    }
+
+    // Same as above, applying every update through optimizer
+    public OnlineTrainer(MLP nn, int batchSize, double learningRate, int publishEvery, int queueCapacity, Optimizer optimizer) {
+        if (batchSize < 1 || publishEvery < 1) {
+            throw new IllegalArgumentException("batchSize and publishEvery must be at least 1");
+        }
+        this.nn = nn;
+        this.batchSize = batchSize;
+        this.learningRate = learningRate;
+        this.publishEvery = publishEvery;
+        this.optimizer = optimizer;
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        published = new AtomicReference<>(nn.snapshot());
+        batchInputs = new double[batchSize][];
+        batchTargets = new double[batchSize][];
+        batchLabels = new int[batchSize];
+        nn.ensureBatchCapacity(batchSize);
+        trainer = new Thread(this::trainLoop, "mlp-online-trainer");
+        trainer.setDaemon(true);
+        trainer.start();
+    }
+
+    // Queues one example for training, blocking while the queue is full
+    public void submit(TrainingExample example) throws InterruptedException {
+        submitLock.lockInterruptibly();
+        try {
+            checkFailure();
+            if (closed) {
+                throw new IllegalStateException("OnlineTrainer is closed");
+            }
+            queue.put(example);
+        } finally {
+            submitLock.unlock();
+        }
+        checkFailure(); // the trainer may have failed while this call waited for room
+    }
+
+    // The most recently published weights; never blocks
+    public MLPSnapshot current() {
+        return published.get();
+    }
+
+    // Mean nanoseconds per publish so far
+    public double meanPublishNanos() {
+        return publishes == 0 ? 0.0 : (double) publishNanos / publishes;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Online training failed", failure);
+        }
+    }
+
+    private void trainLoop() {
+        boolean ended = false;
+        try {
+            int sincePublish = 0;
+            while (!ended) {
+                int count = 0;
+                TrainingExample example = queue.take();
+                while (example != END) {
+                    batchInputs[count] = example.input;
+                    batchTargets[count] = example.output;
+                    batchLabels[count] = example.label;
+                    count++;
+                    if (count == batchSize || (example = queue.poll()) == null) {
+                        break;
+                    }
+                }
+                ended = example == END;
+                if (count > 0) {
+                    long start = System.nanoTime();
+                    train(count);
+                    trainNanos += System.nanoTime() - start;
+                    examples += count;
+                    updates++;
+                    if (++sincePublish == publishEvery) {
+                        publish();
+                        sincePublish = 0;
+                    }
+                }
+            }
+            if (sincePublish > 0) {
+                publish();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure = e;
+            // If END came with the failed batch, close() is already waiting and there is nothing to drain
+            if (!ended) {
+                discardUntilEnd();
+            }
+        }
+    }
+
+    // Drops queued examples until close() so that producers blocked in submit() wake up and see the failure
+    private void discardUntilEnd() {
+        try {
+            while (queue.take() != END) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void train(int count) {
+        boolean labelled = true;
+        for (int b = 0; b < count; b++) {
+            labelled &= batchLabels[b] >= 0;
+        }
+        nn.forwardBatch(batchInputs, count);
+        if (labelled) {
+            nn.backwardBatch(batchLabels, 0);
+        } else {
+            nn.backwardBatch(batchTargets);
+        }
+        if (optimizer == null) {
+            nn.updateWeights(learningRate);
+        } else {
+            nn.updateWeights(optimizer, learningRate);
+        }
+    }
+
+    private void publish() {
+        long start = System.nanoTime();
+        published.set(nn.snapshot());
+        long elapsed = System.nanoTime() - start;
+        publishNanos += elapsed;
+        maxPublishNanos = Math.max(maxPublishNanos, elapsed);
+        publishes++;
+    }
+
+    // Trains on every example already submitted, publishes the final weights and stops the trainer
+    // thread. If the calling thread is interrupted it stops waiting and keeps its interrupt flag.
+    @Override
+    public void close() {
+        try {
+            submitLock.lock();
+            try {
+                if (!closed) {
+                    queue.put(END);
+                    closed = true;
+                }
+            } finally {
+                submitLock.unlock();
+            }
+            trainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        checkFailure();
+    }
+}
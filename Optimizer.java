@@ -0,0 +1,20 @@
+// Update rule applied to the weight changes accumulated by backward() or backwardBatch().
+// A model calls beginStep() once per update and then step() for each of its weight arrays,
+// numbered from 0 in a fixed order (W1 then W2 for MLP), so stateful optimizers can keep one
+// state array per weight array. step() must leave the weight changes zeroed, as updateWeights does.
+public interface Optimizer {
+    // Called once at the start of every update
+    void beginStep();
+
+    // Moves weights against the accumulated changes in grads, then zeroes grads
+    void step(int slot, double[] weights, double[] grads, double learningRate);
+
+    // Copy of the internal state as plain arrays, e.g. for ModelCheckpoint.write(); empty for stateless
+    // rules, null for slots that were never stepped. Changing the returned arrays does not affect
+    // the optimizer.
+    double[][] state();
+
+    // Restores state previously returned by state() for a model with the same shape. Arrays for
+    // slots that were never stepped are null in state(), or empty after a ModelCheckpoint round trip.
+    void restoreState(double[][] state);
+}
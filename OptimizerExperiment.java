@@ -0,0 +1,105 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Time-to-accuracy comparison of update rules on the letter recognition data.
+// The 80% training split is divided again into training and validation rows. Every configuration
+// trains until its validation accuracy has not improved for patience epochs (or maxEpochs), then
+// restores its best weights and reports test accuracy. Early stopping only looks at validation
+// rows; the test rows are only used to record the first epoch and wall time at which test accuracy
+// reached the target, so it can be compared with the default target, the test accuracy of the
+// 2000-epoch LetterRecognitionExperiment run.
+// Usage: java OptimizerExperiment [maxEpochs] [targetAccuracy] [patience]
+public class OptimizerExperiment {
+    // One optimizer and schedule to compare
+    static class Config {
+        String name;
+        Optimizer optimizer;
+        LearningRateSchedule schedule;
+
+        Config(String name, Optimizer optimizer, LearningRateSchedule schedule) {
+            this.name = name;
+            this.optimizer = optimizer;
+            this.schedule = schedule;
+        }
+    }
+
+    public static void main(String[] args) {
+        int maxEpochs = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        double targetAccuracy = args.length > 1 ? Double.parseDouble(args[1]) : 91.43;
+        int patience = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        int NI = 16;
+        int NH = 40;
+        int NO = 26;
+        int batchSize = 10;
+        long seed = 42;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("OptimizerExperimentResults.txt"))) {
+            ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+            int trainingSamples = (int) (0.8 * dataset.size());
+            int validationStart = (int) (0.9 * trainingSamples);
+            ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, validationStart));
+            ArrayList<TrainingExample> validationData = new ArrayList<>(dataset.subList(validationStart, trainingSamples));
+            ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+
+            Config[] configs = {
+                new Config("SGD 0.1", new SgdOptimizer(), LearningRateSchedule.constant(0.1)),
+                new Config("Momentum 0.9, 0.01", new MomentumOptimizer(0.9, false), LearningRateSchedule.constant(0.01)),
+                new Config("Nesterov 0.9, 0.01", new MomentumOptimizer(0.9, true), LearningRateSchedule.constant(0.01)),
+                new Config("Adam 0.01", new AdamOptimizer(), LearningRateSchedule.constant(0.01)),
+                new Config("Adam 0.03 step", new AdamOptimizer(), LearningRateSchedule.step(0.03, 0.5, 30)),
+                new Config("AdamW 0.03 cosine", new AdamOptimizer(0.9, 0.999, 1e-8, 1e-4),
+                    LearningRateSchedule.warmup(3, 0.03, LearningRateSchedule.cosine(0.03, 0.0003, 150))),
+            };
+
+            writer.write("Optimizer Experiment Results\n");
+            writer.write("============================\n");
+            writer.write("Configuration:\n");
+            writer.write("Network: " + NI + "-" + NH + "-" + NO + " SOFTMAX\n");
+            writer.write("Training / Validation / Test: " + trainingData.size() + " / " + validationData.size()
+                + " / " + testData.size() + "\n");
+            writer.write("Batch Size: " + batchSize + "\n");
+            writer.write("Max Epochs: " + maxEpochs + ", Patience: " + patience + "\n");
+            writer.write("Target Test Accuracy: " + String.format("%.2f", targetAccuracy) + "%\n\n");
+            writer.write(String.format("%-22s %14s %14s %12s %12s %12s %12s\n", "Optimizer", "Epochs to tgt",
+                "Seconds to tgt", "Best epoch", "Epochs run", "Val acc %", "Test acc %"));
+
+            for (Config config : configs) {
+                MLP nn = new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, seed);
+                Trainer trainer = new Trainer(nn, batchSize, new Random(seed), config.optimizer);
+                EarlyStopping stopping = new EarlyStopping(patience, 0.0);
+
+                int epochsToTarget = -1;
+                double secondsToTarget = -1;
+                int epoch = 0;
+                long start = System.nanoTime();
+                while (epoch < maxEpochs) {
+                    trainer.trainEpoch(trainingData, config.schedule.rate(epoch));
+                    epoch++;
+                    double validationAccuracy = LetterRecognitionExperiment.accuracy(nn, validationData);
+                    if (epochsToTarget < 0 && LetterRecognitionExperiment.accuracy(nn, testData) >= targetAccuracy) {
+                        epochsToTarget = epoch;
+                        secondsToTarget = (System.nanoTime() - start) / 1e9;
+                    }
+                    if (stopping.update(epoch, validationAccuracy, nn)) {
+                        break;
+                    }
+                }
+                stopping.restoreBest(nn);
+
+                String row = String.format("%-22s %14s %14s %12d %12d %12.2f %12.2f\n", config.name,
+                    epochsToTarget < 0 ? "not reached" : Integer.toString(epochsToTarget),
+                    epochsToTarget < 0 ? "-" : String.format("%.2f", secondsToTarget),
+                    stopping.bestEpoch, epoch, stopping.bestScore, LetterRecognitionExperiment.accuracy(nn, testData));
+                writer.write(row);
+                writer.flush();
+                System.out.print(row);
+            }
+            System.out.println("Results saved to OptimizerExperimentResults.txt");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
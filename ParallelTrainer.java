@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Synchronous data-parallel training for one MLP.
+// Each minibatch is split into contiguous slices, one per worker. Every worker runs
+// forwardBatch/backwardBatch on a replica that shares the weights but has its own
+// activations and weight changes. The weight changes are then summed into the model
+// in worker order before updateWeights, so a fixed seed and thread count always
+// produce the same weights.
+public class ParallelTrainer implements AutoCloseable {
+    MLP nn;
+    int numThreads;
+    MLP[] workers;
+    ExecutorService pool;
+
+    // Current minibatch, shared read-only by the workers
+    double[][] batchInputs;
+    double[][] batchTargets;
+    int[] batchLabels;
+    boolean labelled; // every example of the current minibatch has a class label
+    List<Callable<Double>> tasks = new ArrayList<>();
+    int[] sliceStart, sliceCount;
+
+    public ParallelTrainer(MLP nn, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("numThreads must be at least 1");
+        }
+        this.nn = nn;
+        this.numThreads = numThreads;
+        workers = new MLP[numThreads];
+        sliceStart = new int[numThreads];
+        sliceCount = new int[numThreads];
+        for (int w = 0; w < numThreads; w++) {
+            workers[w] = nn.replica();
+            final int worker = w;
+            tasks.add(() -> runSlice(worker));
+        }
+        if (numThreads > 1) {
+            pool = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread t = new Thread(r, "mlp-trainer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // Trains one epoch over data in its current order and returns the summed error.
+    // Weights are updated after every batchSize examples and once more for any remainder.
+    public double trainEpoch(ArrayList<TrainingExample> data, int batchSize, double learningRate) {
+        if (batchInputs == null || batchInputs.length < batchSize) {
+            batchInputs = new double[batchSize][];
+            batchTargets = new double[batchSize][];
+            batchLabels = new int[batchSize];
+        }
+
+        double error = 0;
+        for (int start = 0; start < data.size(); start += batchSize) {
+            int count = Math.min(batchSize, data.size() - start);
+            labelled = true;
+            for (int b = 0; b < count; b++) {
+                TrainingExample example = data.get(start + b);
+                batchInputs[b] = example.input;
+                batchTargets[b] = example.output;
+                batchLabels[b] = example.label;
+                labelled &= example.label >= 0;
+            }
+            error += trainBatch(count);
+            nn.updateWeights(learningRate);
+        }
+        return error;
+    }
+
+    // Splits the first count rows of the current minibatch across the workers and reduces their weight changes into nn
+    private double trainBatch(int count) {
+        int slice = (count + numThreads - 1) / numThreads;
+        for (int w = 0; w < numThreads; w++) {
+            sliceStart[w] = Math.min(w * slice, count);
+            sliceCount[w] = Math.min(slice, count - sliceStart[w]);
+        }
+
+        double error = 0;
+        if (pool == null) {
+            error = runSlice(0);
+        } else {
+            try {
+                List<Future<Double>> results = pool.invokeAll(tasks);
+                for (Future<Double> result : results) {
+                    error += result.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Training interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Worker failed", e.getCause());
+            }
+        }
+
+        // Reduce in a fixed order so the result does not depend on thread scheduling
+        for (MLP worker : workers) {
+            addAndClear(worker.dW1, nn.dW1);
+            addAndClear(worker.dW2, nn.dW2);
+        }
+        return error;
+    }
+
+    // Runs forward and backward for one worker's slice of the current minibatch
+    private double runSlice(int w) {
+        if (sliceCount[w] == 0) {
+            return 0.0;
+        }
+        MLP worker = workers[w];
+        worker.forwardBatch(batchInputs, sliceStart[w], sliceCount[w]);
+        return labelled
+            ? worker.backwardBatch(batchLabels, sliceStart[w])
+            : worker.backwardBatch(batchTargets, sliceStart[w]);
+    }
+
+    // Adds src into dst and zeroes src
+    private static void addAndClear(double[] src, double[] dst) {
+        for (int n = 0; n < src.length; n++) {
+            dst[n] += src[n];
+            src[n] = 0.0;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
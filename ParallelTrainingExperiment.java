@@ -0,0 +1,110 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+// Compares ParallelTrainer against the single-threaded minibatch loop on the letter recognition data.
+// Usage: java ParallelTrainingExperiment [epochs] [batchSize] [maxThreads]
+public class ParallelTrainingExperiment {
+    public static void main(String[] args) {
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        int NI = 16;
+        int NH = 40;
+        int NO = 26;
+        double learningRate = 0.01;
+        long seed = 42;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("ParallelTrainingExperimentResults.txt"))) {
+            ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+            ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, (int) (0.8 * dataset.size())));
+
+            writer.write("Parallel Training Experiment Results\n");
+            writer.write("====================================\n");
+            writer.write("Configuration:\n");
+            writer.write("Network: " + NI + "-" + NH + "-" + NO + " SOFTMAX\n");
+            writer.write("Training Examples: " + trainingData.size() + "\n");
+            writer.write("Epochs: " + epochs + "\n");
+            writer.write("Batch Size: " + batchSize + "\n");
+            writer.write("Learning Rate: " + learningRate + "\n");
+            writer.write("Available Processors: " + Runtime.getRuntime().availableProcessors() + "\n\n");
+
+            // Warm up the JIT on both paths so the first timed run is not penalised
+            trainSingleThreaded(new ArrayList<>(trainingData), new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, seed), 2, batchSize, learningRate);
+            trainParallel(new ArrayList<>(trainingData), new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, seed), 2, batchSize, learningRate, maxThreads);
+
+            MLP baseline = new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, seed);
+            long start = System.nanoTime();
+            double baselineError = trainSingleThreaded(new ArrayList<>(trainingData), baseline, epochs, batchSize, learningRate);
+            double baselineSeconds = (System.nanoTime() - start) / 1e9;
+
+            writer.write("Threads\tSeconds\tSpeedup\tFinal Error\tDeterministic\n");
+            writer.write(String.format("loop\t%.3f\t%.2f\t%.6f\t-\n", baselineSeconds, 1.0, baselineError / trainingData.size()));
+
+            // Powers of two up to maxThreads, plus maxThreads itself
+            ArrayList<Integer> threadCounts = new ArrayList<>();
+            for (int threads = 1; threads < maxThreads; threads *= 2) {
+                threadCounts.add(threads);
+            }
+            threadCounts.add(maxThreads);
+
+            for (int threads : threadCounts) {
+                MLP nn = new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, seed);
+                start = System.nanoTime();
+                double error = trainParallel(new ArrayList<>(trainingData), nn, epochs, batchSize, learningRate, threads);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                // Repeat the run to confirm the weights are bit-for-bit reproducible
+                MLP repeat = new MLP(NI, NH, NO, ActivationFunctionType.SOFTMAX, seed);
+                trainParallel(new ArrayList<>(trainingData), repeat, epochs, batchSize, learningRate, threads);
+                boolean deterministic = Arrays.equals(nn.W1, repeat.W1) && Arrays.equals(nn.W2, repeat.W2);
+
+                writer.write(String.format("%d\t%.3f\t%.2f\t%.6f\t%s\n",
+                    threads, seconds, baselineSeconds / seconds, error / trainingData.size(), deterministic));
+            }
+            System.out.println("Results saved to ParallelTrainingExperimentResults.txt");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Plain single-threaded minibatch loop; returns the error of the last epoch
+    static double trainSingleThreaded(ArrayList<TrainingExample> data, MLP nn, int epochs, int batchSize, double learningRate) {
+        Random shuffle = new Random(42);
+        double[][] batchInputs = new double[batchSize][];
+        double[][] batchTargets = new double[batchSize][];
+        double error = 0;
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Collections.shuffle(data, shuffle);
+            error = 0;
+            for (int start = 0; start < data.size(); start += batchSize) {
+                int count = Math.min(batchSize, data.size() - start);
+                for (int b = 0; b < count; b++) {
+                    batchInputs[b] = data.get(start + b).input;
+                    batchTargets[b] = data.get(start + b).output;
+                }
+                nn.forwardBatch(batchInputs, count);
+                error += nn.backwardBatch(batchTargets);
+                nn.updateWeights(learningRate);
+            }
+        }
+        return error;
+    }
+
+    // Same loop through ParallelTrainer; returns the error of the last epoch
+    static double trainParallel(ArrayList<TrainingExample> data, MLP nn, int epochs, int batchSize, double learningRate, int threads) {
+        Random shuffle = new Random(42);
+        double error = 0;
+        try (ParallelTrainer trainer = new ParallelTrainer(nn, threads)) {
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                Collections.shuffle(data, shuffle);
+                error = trainer.trainEpoch(data, batchSize, learningRate);
+            }
+        }
+        return error;
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+// Accuracy, speed and size of the letter recognition model at increasing sparsity.
+// For each target sparsity a copy of the trained model is magnitude pruned, tested, fine-tuned for
+// a few epochs through a MaskedOptimizer and tested again. The fine-tuned model is exported to a
+// SparseMLP, whose predictions per second (best of several passes) and weight bytes are compared
+// with the dense MLPSnapshot of the same weights. The largest output difference between the two
+// is reported as a check on the sparse kernel.
+// Results go to PruningExperimentResults.txt.
+// Usage: java PruningExperiment [fineTuneEpochs] [model.mlp]
+// Without a model file (default LetterRecognitionModel.mlp) a model is trained for a few epochs first.
+public class PruningExperiment {
+    public static void main(String[] args) throws Exception {
+        int fineTuneEpochs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String modelFile = args.length > 1 ? args[1] : "LetterRecognitionModel.mlp";
+        double[] sparsities = {0.0, 0.5, 0.7, 0.8, 0.9, 0.95};
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+
+        LetterModels.LoadedModel loaded = LetterModels.loadOrTrain(modelFile, trainingData, 50);
+        MLP trained = loaded.nn;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("PruningExperimentResults.txt"))) {
+            writer.write("Pruning Experiment Results\n");
+            writer.write("==========================\n");
+            writer.write("Model: " + trained.NI + "-" + trained.NH + "-" + trained.NO + " " + trained.outputActivation + ", "
+                + loaded.source + "\n");
+            writer.write("Fine-tuning: " + fineTuneEpochs + " epochs, batch 10, learning rate 0.1, pruned weights held at zero\n\n");
+            writer.write(String.format("%8s %10s %10s %12s %12s %10s %14s %14s %9s %10s\n", "Sparsity", "Pruned %",
+                "Tuned %", "Dense bytes", "Sparse bytes", "Memory", "Dense pred/s", "Sparse pred/s", "Speedup", "Max diff"));
+
+            for (double sparsity : sparsities) {
+                MLP nn = new MLP(trained.NI, trained.NH, trained.NO, trained.outputActivation);
+                System.arraycopy(trained.W1, 0, nn.W1, 0, trained.W1.length);
+                System.arraycopy(trained.W2, 0, nn.W2, 0, trained.W2.length);
+
+                boolean[][] keep = MagnitudePruning.prune(nn, sparsity);
+                double prunedAccuracy = LetterRecognitionExperiment.accuracy(nn, testData);
+                Trainer trainer = new Trainer(nn, 10, new Random(7), new MaskedOptimizer(new SgdOptimizer(), keep));
+                for (int epoch = 0; epoch < fineTuneEpochs; epoch++) {
+                    trainer.trainEpoch(trainingData, 0.1);
+                }
+                double tunedAccuracy = LetterRecognitionExperiment.accuracy(nn, testData);
+
+                MLPSnapshot dense = nn.snapshot();
+                SparseMLP sparse = new SparseMLP(nn);
+                double[] expected = new double[nn.NO];
+                double[] output = new double[nn.NO];
+                double maxDiff = 0;
+                for (TrainingExample example : testData) {
+                    dense.predict(example.input, expected);
+                    sparse.predict(example.input, output);
+                    for (int k = 0; k < nn.NO; k++) {
+                        maxDiff = Math.max(maxDiff, Math.abs(output[k] - expected[k]));
+                    }
+                }
+
+                double denseRate = LetterModels.throughput(testData, input -> dense.predict(input, expected)[0]);
+                double sparseRate = LetterModels.throughput(testData, input -> sparse.predict(input, output)[0]);
+                long denseBytes = 8L * (nn.W1.length + nn.W2.length);
+                long sparseBytes = sparse.sizeBytes();
+
+                String row = String.format("%8.2f %10.2f %10.2f %12d %12d %9.2fx %14.0f %14.0f %8.2fx %10.1e\n",
+                    MagnitudePruning.sparsity(nn), prunedAccuracy, tunedAccuracy, denseBytes, sparseBytes,
+                    (double) denseBytes / sparseBytes, denseRate, sparseRate, sparseRate / denseRate, maxDiff);
+                writer.write(row);
+                writer.flush();
+                System.out.print(row);
+            }
+        }
+        System.out.println("Results saved to PruningExperimentResults.txt");
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+
+// Compares the letter recognition model before and after int8 post-training quantization.
+// The model is quantized with QuantizedMLP, calibrated on a sample of the training rows, and
+// both versions are run on the test rows. Reports weight storage, predictions per second (best
+// of several passes), test accuracy and how often the two predicted classes agree.
+// Results go to QuantizationExperimentResults.txt.
+// Usage: java QuantizationExperiment [calibrationRows] [model.mlp]
+// Without a model file (default LetterRecognitionModel.mlp) a model is trained for a few epochs first.
+public class QuantizationExperiment {
+    public static void main(String[] args) throws Exception {
+        int calibrationRows = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String modelFile = args.length > 1 ? args[1] : "LetterRecognitionModel.mlp";
+
+        ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+        int trainingSamples = (int) (0.8 * dataset.size());
+        ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+        ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+
+        LetterModels.LoadedModel loaded = LetterModels.loadOrTrain(modelFile, trainingData, 50);
+        MLP nn = loaded.nn;
+
+        // Calibrate on an evenly spaced sample of the training rows
+        ArrayList<TrainingExample> calibration = new ArrayList<>();
+        int stride = Math.max(1, trainingData.size() / calibrationRows);
+        for (int n = 0; n < trainingData.size() && calibration.size() < calibrationRows; n += stride) {
+            calibration.add(trainingData.get(n));
+        }
+        MLPSnapshot reference = nn.snapshot();
+        QuantizedMLP quantized = QuantizedMLP.quantize(nn, calibration);
+
+        // Accuracy of both models and agreement between their predictions
+        double[] output = new double[nn.NO];
+        int referenceCorrect = 0;
+        int quantizedCorrect = 0;
+        int agree = 0;
+        for (TrainingExample example : testData) {
+            int target = MLP.argMax(example.output);
+            reference.predict(example.input, output);
+            int expected = MLP.argMax(output);
+            int predicted = quantized.predict(example.input, output);
+            referenceCorrect += expected == target ? 1 : 0;
+            quantizedCorrect += predicted == target ? 1 : 0;
+            agree += predicted == expected ? 1 : 0;
+        }
+        double referenceAccuracy = 100.0 * referenceCorrect / testData.size();
+        double quantizedAccuracy = 100.0 * quantizedCorrect / testData.size();
+
+        double referenceRate = LetterModels.throughput(testData, input -> {
+            reference.predict(input, output);
+            return MLP.argMax(output);
+        });
+        double quantizedRate = LetterModels.throughput(testData, input -> quantized.predict(input, output));
+        long referenceBytes = 8L * (nn.W1.length + nn.W2.length);
+        long quantizedBytes = quantized.sizeBytes();
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("QuantizationExperimentResults.txt"))) {
+            writer.write("Quantization Experiment Results\n");
+            writer.write("===============================\n");
+            writer.write("Model: " + nn.NI + "-" + nn.NH + "-" + nn.NO + " " + nn.outputActivation + ", " + loaded.source + "\n");
+            writer.write("Calibration: " + calibration.size() + " training rows, test rows: " + testData.size() + "\n\n");
+            writer.write(String.format("%-8s %14s %16s %14s\n", "Model", "Weight bytes", "Predictions/s", "Test acc %"));
+            writer.write(String.format("%-8s %14d %16.0f %14.2f\n", "double", referenceBytes, referenceRate, referenceAccuracy));
+            writer.write(String.format("%-8s %14d %16.0f %14.2f\n", "int8", quantizedBytes, quantizedRate, quantizedAccuracy));
+            writer.write(String.format("\nSize reduction: %.2fx, throughput: %.2fx, accuracy change: %+.2f points\n",
+                (double) referenceBytes / quantizedBytes, quantizedRate / referenceRate, quantizedAccuracy - referenceAccuracy));
+            writer.write(String.format("Predicted class agreement: %d / %d (%.2f%%)\n", agree, testData.size(),
+                100.0 * agree / testData.size()));
+        }
+        System.out.println("Results saved to QuantizationExperimentResults.txt");
+    }
+}
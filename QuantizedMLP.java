@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+
+// Inference-only int8 version of a trained MLP (post-training quantization).
+// Weights are stored as bytes with one scale per hidden or output unit: each unit's incoming
+// weights are divided by max|w| / 127 and rounded. Inputs are quantized the same way with one
+// scale, calibrated as the largest magnitude seen on a sample of training inputs. Hidden sigmoid
+// outputs are never negative, so they are stored unsigned in 0..255 with scale maxHidden / 255,
+// which keeps twice the resolution a symmetric scale would. Every layer then accumulates
+// byte * byte products in an int and applies the two scales once per unit. The weights keep
+// MLP's row-major layout so each non-zero input adds one contiguous row of products, as in
+// MLPSnapshot.
+// Like MLPSnapshot the model is immutable and predict() uses per-thread scratch buffers.
+public final class QuantizedMLP {
+    final int NI, NH, NO;
+    final ActivationFunctionType outputActivation;
+    private final byte[] W1q, W2q;
+    private final double[] scale1, scale2; // per hidden unit and per output unit weight scales
+    private final double inputScale, hiddenScale; // hiddenScale maps unsigned 0..255
+    private final double[] dequantize1, dequantize2; // inputScale * scale1, hiddenScale * scale2
+    private final ThreadLocal<Scratch> scratch;
+
+    // Per-thread integer accumulators and quantized hidden values
+    private static final class Scratch {
+        final int[] acc;
+        final byte[] hidden; // unsigned
+
+        Scratch(int units, int numHidden) {
+            acc = new int[units];
+            hidden = new byte[numHidden];
+        }
+    }
+
+    private QuantizedMLP(MLP nn, double inputScale, double hiddenScale) {
+        NI = nn.NI;
+        NH = nn.NH;
+        NO = nn.NO;
+        outputActivation = nn.outputActivation;
+        this.inputScale = inputScale;
+        this.hiddenScale = hiddenScale;
+        W1q = new byte[NI * NH];
+        W2q = new byte[NH * NO];
+        scale1 = quantizeColumns(nn.W1, NI, NH, W1q);
+        scale2 = quantizeColumns(nn.W2, NH, NO, W2q);
+        dequantize1 = new double[NH];
+        for (int j = 0; j < NH; j++) {
+            dequantize1[j] = inputScale * scale1[j];
+        }
+        dequantize2 = new double[NO];
+        for (int k = 0; k < NO; k++) {
+            dequantize2[k] = hiddenScale * scale2[k];
+        }
+        scratch = ThreadLocal.withInitial(() -> new Scratch(Math.max(NH, NO), NH));
+    }
+
+    // Quantizes nn, calibrating the input and hidden activation ranges on the calibration examples
+    public static QuantizedMLP quantize(MLP nn, ArrayList<TrainingExample> calibration) {
+        MLPSnapshot model = nn.snapshot();
+        double[] hidden = new double[nn.NH];
+        double[] output = new double[nn.NO];
+        double maxInput = 0;
+        double maxHidden = 0;
+        for (TrainingExample example : calibration) {
+            for (double x : example.input) {
+                maxInput = Math.max(maxInput, Math.abs(x));
+            }
+            model.predict(example.input, output, hidden);
+            for (double h : hidden) {
+                maxHidden = Math.max(maxHidden, h);
+            }
+        }
+        return new QuantizedMLP(nn, scaleFor(maxInput), maxHidden > 0 ? maxHidden / 255.0 : 1.0);
+    }
+
+    // Computes the network output for input into output (length NO) and returns its argmax
+    public int predict(double[] input, double[] output) {
+        Scratch buffers = scratch.get();
+        int[] acc = buffers.acc;
+        byte[] hq = buffers.hidden;
+
+        // Hidden layer: quantize each input and add its row of integer products, skipping zeros
+        for (int j = 0; j < NH; j++) {
+            acc[j] = 0;
+        }
+        double inverseInput = 1.0 / inputScale;
+        for (int i = 0; i < NI; i++) {
+            int x = clampRound(input[i] * inverseInput);
+            if (x != 0) {
+                int row = i * NH;
+                for (int j = 0; j < NH; j++) {
+                    acc[j] += x * W1q[row + j];
+                }
+            }
+        }
+        double inverseHidden = 1.0 / hiddenScale;
+        for (int j = 0; j < NH; j++) {
+            hq[j] = clampRoundUnsigned(MLP.sigmoid(acc[j] * dequantize1[j]) * inverseHidden);
+        }
+
+        // Output layer
+        for (int k = 0; k < NO; k++) {
+            acc[k] = 0;
+        }
+        for (int j = 0; j < NH; j++) {
+            int h = hq[j] & 0xFF;
+            int row = j * NO;
+            for (int k = 0; k < NO; k++) {
+                acc[k] += h * W2q[row + k];
+            }
+        }
+        for (int k = 0; k < NO; k++) {
+            output[k] = acc[k] * dequantize2[k];
+        }
+
+        if (outputActivation == ActivationFunctionType.SIGMOID) {
+            for (int k = 0; k < NO; k++) {
+                output[k] = MLP.sigmoid(output[k]);
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            MLP.softmax(output, output, 0, NO);
+        }
+        return MLP.argMax(output);
+    }
+
+    // Bytes taken by the quantized weights and their scales
+    public long sizeBytes() {
+        return W1q.length + W2q.length + 8L * (scale1.length + scale2.length + 2);
+    }
+
+    // Quantizes each column j of the rows x cols matrix w into q (same row-major layout) and returns the column scales
+    private static double[] quantizeColumns(double[] w, int rows, int cols, byte[] q) {
+        double[] scales = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            double max = 0;
+            for (int i = 0; i < rows; i++) {
+                max = Math.max(max, Math.abs(w[i * cols + j]));
+            }
+            scales[j] = scaleFor(max);
+            for (int i = 0; i < rows; i++) {
+                q[i * cols + j] = clampRound(w[i * cols + j] / scales[j]);
+            }
+        }
+        return scales;
+    }
+
+    // Scale mapping [-max, max] onto [-127, 127]; 1 for an all-zero range
+    private static double scaleFor(double max) {
+        return max > 0 ? max / 127.0 : 1.0;
+    }
+
+    // Rounds half away from zero and saturates to [-127, 127]; branches are cheaper here than Math.round
+    private static byte clampRound(double v) {
+        if (v >= 126.5) {
+            return 127;
+        }
+        if (v <= -126.5) {
+            return -127;
+        }
+        return (byte) (int) (v < 0 ? v - 0.5 : v + 0.5);
+    }
+
+    // Rounds v >= 0 to the nearest integer, saturating to [0, 255] and stored as an unsigned byte
+    private static byte clampRoundUnsigned(double v) {
+        if (v >= 254.5) {
+            return (byte) 255;
+        }
+        return (byte) (int) (v + 0.5);
+    }
+}
@@ -0,0 +1,23 @@
+// Plain gradient descent, identical to MLP.updateWeights(learningRate)
+public class SgdOptimizer implements Optimizer {
+    @Override
+    public void beginStep() {
+    }
+
+    @Override
+    public void step(int slot, double[] weights, double[] grads, double learningRate) {
+        for (int n = 0; n < weights.length; n++) {
+            weights[n] -= learningRate * grads[n];
+            grads[n] = 0.0;
+        }
+    }
+
+    @Override
+    public double[][] state() {
+        return new double[0][];
+    }
+
+    @Override
+    public void restoreState(double[][] state) {
+    }
+}
@@ -42,7 +42,8 @@ public class SineExperiment {
         double trainingError = 0;
         Random randShuffle = new Random();
         int batchSize = 5; // Update weights after every 5 examples
-        int batchCounter = 0;
+        double[][] batchInputs = new double[batchSize][];
+        double[][] batchTargets = new double[batchSize][];
         ArrayList<Double> epochErrors = new ArrayList<>(); // To log errors for specific epochs
 
         for (int epoch = 0; epoch < maxEpochs; epoch++) {
@@ -51,37 +52,33 @@ public class SineExperiment {
             // Shuffle training data (optional)
             java.util.Collections.shuffle(trainingData, randShuffle);
 
-            // Iterate through training data
-            for (TrainingExample example : trainingData) {
-                nn.forward(example.input); // Forward pass
-                trainingError += nn.backward(example.input, example.output); // Accumulate updates
-                batchCounter++;
-
-                // Update weights after every batchSize examples
-                if (batchCounter % batchSize == 0) {
-                    nn.updateWeights(learningRate);
+            // Iterate through training data one minibatch at a time
+            for (int start = 0; start < trainingData.size(); start += batchSize) {
+                int count = Math.min(batchSize, trainingData.size() - start);
+                for (int b = 0; b < count; b++) {
+                    TrainingExample example = trainingData.get(start + b);
+                    batchInputs[b] = example.input;
+                    batchTargets[b] = example.output;
                 }
-            }
-
-            // Apply remaining updates
-            if (batchCounter % batchSize != 0) {
+                nn.forwardBatch(batchInputs, count); // Forward pass
+                trainingError += nn.backwardBatch(batchTargets); // Accumulate updates
                 nn.updateWeights(learningRate);
             }
 
-            batchCounter = 0; // Reset for next epoch
-
             // Log error for specific epochs
             if (epoch % 500 == 0 || epoch == maxEpochs - 1) {
                 epochErrors.add(trainingError);
             }
         }
 
-        // Evaluate on test set
+        // Evaluate on test set using a read-only snapshot of the trained weights
+        MLPSnapshot model = nn.snapshot();
+        double[] prediction = new double[NO];
         double testError = 0;
         ArrayList<String> testPredictions = new ArrayList<>();
         for (TrainingExample example : testData) {
-            nn.forward(example.input);
-            double diff = nn.O[0] - example.output[0];
+            model.predict(example.input, prediction);
+            double diff = prediction[0] - example.output[0];
             testError += diff * diff;
 
             // Log some example calculations for predictions
@@ -89,7 +86,7 @@ public class SineExperiment {
                 "Input: %s, Expected: %.4f, Predicted: %.4f, Squared Error: %.4f",
                 java.util.Arrays.toString(example.input),
                 example.output[0],
-                nn.O[0],
+                prediction[0],
                 diff * diff
             ));
         }
@@ -0,0 +1,107 @@
+// Inference-only copy of an MLP that stores only the non-zero weights, for pruned models.
+// W1 and W2 are kept in compressed sparse row form over MLP's row-major layout: for input i the
+// non-zero weights to the hidden units are W1values[W1start[i] .. W1start[i + 1]) with the hidden
+// unit numbers in W1columns, and likewise for each hidden unit's row of W2. The forward pass is
+// the same row-by-row accumulation as MLPSnapshot, skipping zero inputs, but it only visits
+// the stored weights, so it gives the same outputs as the dense model.
+// Building one costs a full pass over the dense weights, so export once after pruning and
+// fine-tuning are done; later changes to the MLP are not seen. predict() may be called from any
+// number of threads, each with its own hidden-layer buffer.
+public final class SparseMLP {
+    final int NI, NH, NO;
+    final ActivationFunctionType outputActivation;
+    private final int[] W1start, W1columns, W2start, W2columns;
+    private final double[] W1values, W2values;
+    private final ThreadLocal<double[]> hiddenScratch;
+
+    public SparseMLP(MLP nn) {
+        NI = nn.NI;
+        NH = nn.NH;
+        NO = nn.NO;
+        outputActivation = nn.outputActivation;
+        W1start = new int[NI + 1];
+        W1columns = new int[nonZeros(nn.W1)];
+        W1values = new double[W1columns.length];
+        compress(nn.W1, NI, NH, W1start, W1columns, W1values);
+        W2start = new int[NH + 1];
+        W2columns = new int[nonZeros(nn.W2)];
+        W2values = new double[W2columns.length];
+        compress(nn.W2, NH, NO, W2start, W2columns, W2values);
+        hiddenScratch = ThreadLocal.withInitial(() -> new double[NH]);
+    }
+
+    // Computes the network output for input into output (length NO) and returns output
+    public double[] predict(double[] input, double[] output) {
+        double[] hidden = hiddenScratch.get();
+
+        // Hidden layer
+        for (int j = 0; j < NH; j++) {
+            hidden[j] = 0.0;
+        }
+        for (int i = 0; i < NI; i++) {
+            double x = input[i];
+            if (x != 0.0) {
+                for (int n = W1start[i]; n < W1start[i + 1]; n++) {
+                    hidden[W1columns[n]] += x * W1values[n];
+                }
+            }
+        }
+        for (int j = 0; j < NH; j++) {
+            hidden[j] = MLP.sigmoid(hidden[j]);
+        }
+
+        // Output layer
+        for (int k = 0; k < NO; k++) {
+            output[k] = 0.0;
+        }
+        for (int j = 0; j < NH; j++) {
+            double h = hidden[j];
+            for (int n = W2start[j]; n < W2start[j + 1]; n++) {
+                output[W2columns[n]] += h * W2values[n];
+            }
+        }
+
+        // Apply respective activation function
+        if (outputActivation == ActivationFunctionType.SIGMOID) {
+            for (int k = 0; k < NO; k++) {
+                output[k] = MLP.sigmoid(output[k]);
+            }
+        } else if (outputActivation == ActivationFunctionType.SOFTMAX) {
+            MLP.softmax(output, output, 0, NO);
+        }
+        return output;
+    }
+
+    // Number of stored weights
+    public int nonZeros() {
+        return W1values.length + W2values.length;
+    }
+
+    // Bytes taken by the stored weights, their column numbers and the row starts
+    public long sizeBytes() {
+        return 12L * nonZeros() + 4L * (W1start.length + W2start.length);
+    }
+
+    private static int nonZeros(double[] weights) {
+        int count = 0;
+        for (double w : weights) {
+            count += w != 0.0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static void compress(double[] weights, int rows, int cols, int[] start, int[] columns, double[] values) {
+        int n = 0;
+        for (int i = 0; i < rows; i++) {
+            start[i] = n;
+            for (int j = 0; j < cols; j++) {
+                double w = weights[i * cols + j];
+                if (w != 0.0) {
+                    columns[n] = j;
+                    values[n++] = w;
+                }
+            }
+        }
+        start[rows] = n;
+    }
+}
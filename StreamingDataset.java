@@ -0,0 +1,213 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Reads a letter recognition CSV file incrementally, so training sets larger than the heap can be used.
+//
+// A background thread parses the file into fixed-size chunks, filling the next chunk while the
+// trainer consumes the current one. Examples then pass through a shuffle buffer: each call to
+// next() returns a random example from the buffer and refills its slot from the stream. Order is
+// therefore only shuffled within a window of shuffleBufferSize examples, and memory use is bounded by
+// shuffleBufferSize + 2 * chunkSize examples regardless of the file size.
+public class StreamingDataset implements Dataset, AutoCloseable {
+    static final int NUM_INPUTS = 16;
+    static final int NUM_OUTPUTS = 26;
+
+    // Parsed block of consecutive examples handed from the reader thread to the consumer
+    static class Chunk {
+        double[] inputs;
+        int[] labels;
+        int count;
+
+        Chunk(int capacity) {
+            inputs = new double[capacity * NUM_INPUTS];
+            labels = new int[capacity];
+        }
+    }
+
+    // Marks the end of the file in the queue of filled chunks
+    private static final Chunk END = new Chunk(0);
+
+    String filename;
+    int chunkSize;
+    Random rand;
+
+    // Shuffle buffer
+    double[] bufferInputs;
+    int[] bufferLabels;
+    int bufferCapacity, bufferCount;
+
+    // Chunks cycle between the reader (empty -> full) and the consumer (full -> empty)
+    Chunk[] chunks;
+    BlockingQueue<Chunk> emptyChunks, fullChunks;
+    Chunk current;
+    int currentPos;
+    boolean exhausted;
+    Thread reader;
+    volatile Throwable readError; // why the reader thread stopped before the end of the file
+
+    public StreamingDataset(String filename, int shuffleBufferSize, int chunkSize, Random rand) {
+        if (shuffleBufferSize < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("shuffleBufferSize and chunkSize must be positive");
+        }
+        this.filename = filename;
+        this.chunkSize = chunkSize;
+        this.rand = rand;
+        bufferCapacity = shuffleBufferSize;
+        bufferInputs = new double[shuffleBufferSize * NUM_INPUTS];
+        bufferLabels = new int[shuffleBufferSize];
+        chunks = new Chunk[] {new Chunk(chunkSize), new Chunk(chunkSize)};
+        emptyChunks = new ArrayBlockingQueue<>(chunks.length);
+        fullChunks = new ArrayBlockingQueue<>(chunks.length + 1);
+    }
+
+    @Override
+    public int numInputs() {
+        return NUM_INPUTS;
+    }
+
+    @Override
+    public int numOutputs() {
+        return NUM_OUTPUTS;
+    }
+
+    // Restarts the reader thread at the beginning of the file
+    @Override
+    public void reset() {
+        stopReader();
+        emptyChunks.clear();
+        fullChunks.clear();
+        emptyChunks.addAll(Arrays.asList(chunks));
+        current = null;
+        currentPos = 0;
+        exhausted = false;
+        bufferCount = 0;
+        readError = null;
+
+        reader = new Thread(this::readFile, "dataset-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public boolean next(double[] input, double[] target) {
+        if (reader == null) {
+            throw new IllegalStateException("reset() must be called before the first epoch");
+        }
+
+        // Top the shuffle buffer up from the stream
+        while (bufferCount < bufferCapacity && ensureCurrent()) {
+            System.arraycopy(current.inputs, currentPos * NUM_INPUTS, bufferInputs, bufferCount * NUM_INPUTS, NUM_INPUTS);
+            bufferLabels[bufferCount] = current.labels[currentPos];
+            bufferCount++;
+            currentPos++;
+        }
+        if (bufferCount == 0) {
+            return false;
+        }
+
+        // Hand out a random slot and fill the gap with the last one
+        int slot = rand.nextInt(bufferCount);
+        System.arraycopy(bufferInputs, slot * NUM_INPUTS, input, 0, NUM_INPUTS);
+        Arrays.fill(target, 0.0);
+        target[bufferLabels[slot]] = 1.0;
+
+        bufferCount--;
+        System.arraycopy(bufferInputs, bufferCount * NUM_INPUTS, bufferInputs, slot * NUM_INPUTS, NUM_INPUTS);
+        bufferLabels[slot] = bufferLabels[bufferCount];
+        return true;
+    }
+
+    @Override
+    public void close() {
+        stopReader();
+    }
+
+    // Makes current point at an unread example, recycling finished chunks; false at the end of the file
+    private boolean ensureCurrent() {
+        while (current == null || currentPos == current.count) {
+            if (exhausted) {
+                return false;
+            }
+            if (current != null) {
+                emptyChunks.add(current);
+            }
+            try {
+                current = fullChunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for data", e);
+            }
+            currentPos = 0;
+            if (current == END) {
+                current = null;
+                exhausted = true;
+                if (readError instanceof IOException) {
+                    throw new UncheckedIOException((IOException) readError);
+                } else if (readError != null) {
+                    throw new IllegalStateException("Reading " + filename + " failed", readError);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Body of the reader thread: parses the file into chunks until the end or until interrupted.
+    // Any failure is recorded and followed by END, so the consumer never waits on a dead reader.
+    private void readFile() {
+        try (BufferedReader br = new BufferedReader(new FileReader(filename), 1 << 16)) {
+            int[] values = new int[NUM_INPUTS];
+            Chunk chunk = emptyChunks.take();
+            chunk.count = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int offset = chunk.count * NUM_INPUTS;
+                chunk.labels[chunk.count] = BinaryDataset.parseLine(line, lineNumber, values);
+                for (int i = 0; i < NUM_INPUTS; i++) {
+                    chunk.inputs[offset + i] = values[i] / 15.0; // Normalize inputs
+                }
+                chunk.count++;
+
+                if (chunk.count == chunkSize) {
+                    fullChunks.put(chunk);
+                    chunk = emptyChunks.take();
+                    chunk.count = 0;
+                }
+            }
+            if (chunk.count > 0) {
+                fullChunks.put(chunk);
+            }
+            fullChunks.put(END);
+        } catch (InterruptedException e) {
+            // reset() or close() stopped this epoch early
+        } catch (Throwable e) {
+            readError = e;
+            fullChunks.offer(END);
+        }
+    }
+
+    // Stops the reader thread of the previous epoch, if any
+    private void stopReader() {
+        if (reader == null) {
+            return;
+        }
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reader = null;
+    }
+}
@@ -0,0 +1,181 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+// Exercises StreamingDataset and Trainer.trainEpoch(Dataset).
+//   1. Delivery: letter-recognition.data is streamed for two epochs at several shuffle buffer sizes
+//      and every delivered example is matched against the lines of the file, so each row must come
+//      back exactly once per epoch.
+//   2. Memory: a synthetic file is streamed once per buffer size. At each quarter of the epoch the
+//      heap is collected and the retained heap above the pre-stream baseline is measured; the
+//      largest of these is compared with the documented bound of shuffleBufferSize + 2 * chunkSize
+//      examples, plus slack for the reader's line buffers.
+//   3. Training: a model trained through the stream on the training rows is compared with one
+//      trained by the in-memory Trainer for the same number of epochs.
+// Exits with status 1 if a row is lost or repeated, or if the retained heap exceeds the bound.
+// Results are written to StreamingDatasetExperimentResults.txt.
+// Usage: java StreamingDatasetExperiment [syntheticRows] [epochs]
+public class StreamingDatasetExperiment {
+    static final int CHUNK_SIZE = 4096;
+    static final long SLACK_BYTES = 4L << 20;
+
+    public static void main(String[] args) throws Exception {
+        int syntheticRows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean failed = false;
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("StreamingDatasetExperimentResults.txt"))) {
+            writer.write("Streaming Dataset Experiment Results\n");
+            writer.write("====================================\n");
+            writer.write("Chunk size: " + CHUNK_SIZE + ", max heap: " + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB\n\n");
+
+            // Every row exactly once per epoch
+            HashMap<String, Integer> expected = new HashMap<>();
+            try (BufferedReader br = new BufferedReader(new FileReader("letter-recognition.data"))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        expected.merge(line, 1, Integer::sum);
+                    }
+                }
+            }
+            writer.write("Delivery, letter-recognition.data, 2 epochs\n");
+            writer.write(String.format("%12s %10s %12s %12s %s\n", "Buffer", "Epoch", "Delivered", "Wrong rows", "Status"));
+            for (int buffer : new int[] {1, 1000, 50000}) {
+                try (StreamingDataset data = new StreamingDataset("letter-recognition.data", buffer, CHUNK_SIZE, new Random(42))) {
+                    for (int epoch = 1; epoch <= 2; epoch++) {
+                        int[] delivered = new int[1];
+                        int wrong = deliveryErrors(data, expected, delivered);
+                        failed |= wrong != 0;
+                        writer.write(String.format("%12d %10d %12d %12d %s\n", buffer, epoch, delivered[0], wrong,
+                            wrong == 0 ? "ok" : "MISMATCH"));
+                    }
+                }
+            }
+
+            // Retained heap against the bound
+            File synthetic = File.createTempFile("letter-stream", ".data");
+            synthetic.deleteOnExit();
+            DatasetLoadExperiment.writeSyntheticData(synthetic.getPath(), syntheticRows, new Random(42));
+            long exampleBytes = 8L * StreamingDataset.NUM_INPUTS + 4;
+            writer.write(String.format("\nMemory, %d synthetic rows (%.1f MB of CSV, %.1f MB as parsed examples)\n", syntheticRows,
+                synthetic.length() / 1048576.0, syntheticRows * exampleBytes / 1048576.0));
+            writer.write(String.format("%12s %14s %14s %s\n", "Buffer", "Bound MB", "Retained MB", "Status"));
+            for (int buffer : new int[] {1000, 10000, 100000}) {
+                long bound = (buffer + 2L * CHUNK_SIZE) * exampleBytes;
+                long retained = peakRetained(synthetic.getPath(), buffer, syntheticRows);
+                boolean ok = retained <= bound + SLACK_BYTES;
+                failed |= !ok;
+                writer.write(String.format("%12d %14.2f %14.2f %s\n", buffer, bound / 1048576.0, retained / 1048576.0,
+                    ok ? "ok" : "OVER"));
+                writer.flush();
+            }
+
+            // Training through the stream
+            ArrayList<TrainingExample> dataset = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+            int trainingSamples = (int) (0.8 * dataset.size());
+            ArrayList<TrainingExample> trainingData = new ArrayList<>(dataset.subList(0, trainingSamples));
+            ArrayList<TrainingExample> testData = new ArrayList<>(dataset.subList(trainingSamples, dataset.size()));
+            File training = File.createTempFile("letter-train", ".data");
+            training.deleteOnExit();
+            writeLines("letter-recognition.data", training.getPath(), trainingSamples);
+
+            MLP streamed = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+            Trainer streamTrainer = new Trainer(streamed, 10, new Random(42));
+            long start = System.nanoTime();
+            try (StreamingDataset data = new StreamingDataset(training.getPath(), 1000, CHUNK_SIZE, new Random(42))) {
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    streamTrainer.trainEpoch(data, 0.1);
+                }
+            }
+            double streamSeconds = (System.nanoTime() - start) / 1e9;
+
+            MLP inMemory = new MLP(16, 40, 26, ActivationFunctionType.SOFTMAX, 42);
+            Trainer memoryTrainer = new Trainer(inMemory, 10, new Random(42));
+            start = System.nanoTime();
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                memoryTrainer.trainEpoch(trainingData, 0.1);
+            }
+            double memorySeconds = (System.nanoTime() - start) / 1e9;
+
+            writer.write("\nTraining, 16-40-26 SOFTMAX, batch 10, learning rate 0.1, " + epochs + " epochs of "
+                + trainingSamples + " rows\n");
+            writer.write(String.format("%-28s %10s %12s\n", "Source", "Seconds", "Test acc %"));
+            writer.write(String.format("%-28s %10.2f %12.2f\n", "StreamingDataset (buffer 1000)", streamSeconds,
+                LetterRecognitionExperiment.accuracy(streamed, testData)));
+            writer.write(String.format("%-28s %10.2f %12.2f\n", "in-memory list", memorySeconds,
+                LetterRecognitionExperiment.accuracy(inMemory, testData)));
+        }
+        System.out.println("Results saved to StreamingDatasetExperimentResults.txt");
+        if (failed) {
+            System.err.println("StreamingDataset lost or repeated rows, or retained more heap than its bound");
+            System.exit(1);
+        }
+    }
+
+    // Streams one epoch and returns how many delivered examples do not match a remaining row of the
+    // file, plus rows never delivered; delivered[0] receives the number of examples
+    static int deliveryErrors(StreamingDataset data, HashMap<String, Integer> expected, int[] delivered) {
+        HashMap<String, Integer> remaining = new HashMap<>(expected);
+        double[] input = new double[StreamingDataset.NUM_INPUTS];
+        double[] target = new double[StreamingDataset.NUM_OUTPUTS];
+        StringBuilder line = new StringBuilder();
+        int wrong = 0;
+        data.reset();
+        while (data.next(input, target)) {
+            delivered[0]++;
+            line.setLength(0);
+            line.append((char) ('A' + MLP.argMax(target)));
+            for (double x : input) {
+                line.append(',').append(Math.round(x * 15.0));
+            }
+            Integer left = remaining.get(line.toString());
+            if (left == null || left == 0) {
+                wrong++;
+            } else {
+                remaining.put(line.toString(), left - 1);
+            }
+        }
+        for (int left : remaining.values()) {
+            wrong += left;
+        }
+        return wrong;
+    }
+
+    // Largest heap retained above the baseline at the quarter points of one streamed epoch
+    static long peakRetained(String filename, int buffer, int rows) {
+        long baseline = DatasetLoadExperiment.usedHeap();
+        long peak = 0;
+        double[] input = new double[StreamingDataset.NUM_INPUTS];
+        double[] target = new double[StreamingDataset.NUM_OUTPUTS];
+        try (StreamingDataset data = new StreamingDataset(filename, buffer, CHUNK_SIZE, new Random(42))) {
+            data.reset();
+            int n = 0;
+            while (data.next(input, target)) {
+                if (++n % (rows / 4) == 0) {
+                    peak = Math.max(peak, DatasetLoadExperiment.usedHeap() - baseline);
+                }
+            }
+        }
+        return peak;
+    }
+
+    // Copies the first count lines of from into to
+    static void writeLines(String from, String to, int count) throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get(from));
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(to))) {
+            for (String line : lines.subList(0, count)) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Hyperparameter sweep over the XOR, sine and letter recognition problems.
+// Every trial trains its own MLP with a Trainer on one shared, read-only copy of the data (Trainer
+// shuffles an index array, never the list), so trials run on a fixed pool of threads with nothing
+// to synchronise except the pruner. Every evalEvery epochs a trial reports its validation score;
+// once enough trials have reported at that epoch, one scoring below their median is stopped
+// (median stopping rule). The finished and pruned trials are ranked by validation score and
+// written to SweepResults.txt together with their test scores.
+//
+// Usage: java SweepRunner [key=value ...]
+//   problem=letter|sine|xor  search=grid|random  trials=N (random only)  threads=N  seed=N
+//   lr=, hidden=, batch=, epochs=, activation=  comma-separated choices; in a random search lr, hidden
+//                                                and batch also accept lo:hi (lr is drawn log-uniformly)
+//   evalEvery=N  prune=true|false  minTrials=N (reports needed at an epoch before pruning there)
+// The defaults are each experiment's own constants, with a small grid around the learning rate
+// and hidden units, e.g. java SweepRunner problem=letter search=random trials=32 lr=0.003:0.3 hidden=10:120
+public class SweepRunner {
+    // Data for one problem, split into training, validation and test rows
+    static class Problem {
+        String name;
+        int NI, NO;
+        boolean classification; // scored by accuracy if true, otherwise by negated mean squared error
+        ArrayList<TrainingExample> training, validation, test;
+    }
+
+    // One configuration and its outcome
+    static class Trial {
+        int id;
+        double learningRate;
+        int hidden, batchSize, epochs;
+        ActivationFunctionType activation;
+
+        int epochsRun;
+        boolean pruned;
+        double validationScore = Double.NEGATIVE_INFINITY;
+        double testScore = Double.NEGATIVE_INFINITY;
+        double seconds;
+    }
+
+    // Median stopping rule shared by all trials of a sweep
+    static class Pruner {
+        int minTrials;
+        HashMap<Integer, ArrayList<Double>> scores = new HashMap<>(); // epoch -> scores reported there
+
+        Pruner(int minTrials) {
+            this.minTrials = minTrials;
+        }
+
+        // Records score at epoch and returns true if it is below the median of at least minTrials earlier reports
+        synchronized boolean report(int epoch, double score) {
+            ArrayList<Double> reported = scores.computeIfAbsent(epoch, e -> new ArrayList<>());
+            boolean prune = false;
+            if (reported.size() >= minTrials) {
+                double[] sorted = new double[reported.size()];
+                for (int n = 0; n < sorted.length; n++) {
+                    sorted[n] = reported.get(n);
+                }
+                Arrays.sort(sorted);
+                int mid = sorted.length / 2;
+                double median = sorted.length % 2 == 1 ? sorted[mid] : 0.5 * (sorted[mid - 1] + sorted[mid]);
+                prune = score < median;
+            }
+            reported.add(score);
+            return prune;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> spec = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            spec.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        String problemName = spec.getOrDefault("problem", "letter");
+        long seed = Long.parseLong(spec.getOrDefault("seed", "42"));
+        Problem problem = loadProblem(problemName, seed);
+        defaults(problemName).forEach(spec::putIfAbsent);
+
+        int threads = Integer.parseInt(spec.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        boolean random = spec.getOrDefault("search", "grid").equals("random");
+        boolean prune = Boolean.parseBoolean(spec.getOrDefault("prune", "true"));
+        int minTrials = Integer.parseInt(spec.getOrDefault("minTrials", "4"));
+        List<Trial> trials = random
+            ? randomTrials(spec, Integer.parseInt(spec.getOrDefault("trials", "20")), new Random(seed))
+            : gridTrials(spec);
+        Pruner pruner = prune ? new Pruner(minTrials) : null;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mlp-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Trial trial : trials) {
+            tasks.add(() -> {
+                run(problem, trial, Integer.parseInt(spec.get("evalEvery")), seed, pruner);
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        for (Future<Void> result : pool.invokeAll(tasks)) {
+            result.get(); // rethrows anything a trial threw
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        long epochsRun = 0;
+        for (Trial trial : trials) {
+            epochsRun += trial.epochsRun;
+        }
+
+        // Completed trials first, then pruned ones, each by validation score
+        ArrayList<Trial> ranked = new ArrayList<>(trials);
+        ranked.sort((a, b) -> a.pruned != b.pruned
+            ? Boolean.compare(a.pruned, b.pruned)
+            : Double.compare(b.validationScore, a.validationScore));
+
+        String metric = problem.classification ? "accuracy %" : "-MSE";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("SweepResults.txt"))) {
+            writer.write("Hyperparameter Sweep Results\n");
+            writer.write("============================\n");
+            writer.write("Problem: " + problem.name + " (" + problem.NI + " inputs, " + problem.NO + " outputs)\n");
+            writer.write("Training / Validation / Test: " + problem.training.size() + " / " + problem.validation.size()
+                + " / " + problem.test.size() + "\n");
+            writer.write("Search: " + (random ? "random" : "grid") + ", " + trials.size() + " trials\n");
+            for (String key : new String[] {"lr", "hidden", "batch", "epochs", "activation", "evalEvery"}) {
+                writer.write("  " + key + ": " + spec.get(key) + "\n");
+            }
+            writer.write("Pruning: " + (prune ? "median stopping rule, at least " + minTrials + " reports" : "off") + "\n");
+            writer.write("Score: validation " + metric + "\n");
+            writer.write(String.format(Locale.ROOT, "Threads: %d, Wall time: %.2f s, Epochs trained: %d (%.1f epochs/s)\n\n",
+                threads, seconds, epochsRun, epochsRun / seconds));
+
+            writer.write(String.format("%-5s %-5s %10s %7s %6s %7s %-8s %8s %-9s %13s %13s %9s\n", "Rank", "Trial",
+                "LR", "Hidden", "Batch", "Epochs", "Output", "Run", "Status", "Validation", "Test", "Seconds"));
+            for (int r = 0; r < ranked.size(); r++) {
+                Trial t = ranked.get(r);
+                writer.write(String.format(Locale.ROOT, "%-5d %-5d %10.5f %7d %6d %7d %-8s %8d %-9s %13.4f %13.4f %9.2f\n",
+                    r + 1, t.id, t.learningRate, t.hidden, t.batchSize, t.epochs, t.activation, t.epochsRun,
+                    t.pruned ? "pruned" : "done", t.validationScore, t.testScore, t.seconds));
+            }
+        }
+        System.out.println("Results saved to SweepResults.txt");
+    }
+
+    // Trains one trial, reporting to the pruner every evalEvery epochs
+    static void run(Problem problem, Trial trial, int evalEvery, long seed, Pruner pruner) {
+        long start = System.nanoTime();
+        MLP nn = new MLP(problem.NI, trial.hidden, problem.NO, trial.activation, seed + trial.id);
+        Trainer trainer = new Trainer(nn, trial.batchSize, new Random(seed + trial.id));
+        for (int epoch = 1; epoch <= trial.epochs; epoch++) {
+            trainer.trainEpoch(problem.training, trial.learningRate);
+            trial.epochsRun = epoch;
+            if (epoch % evalEvery == 0 || epoch == trial.epochs) {
+                trial.validationScore = score(problem, nn, problem.validation);
+                if (epoch < trial.epochs && pruner != null && pruner.report(epoch, trial.validationScore)) {
+                    trial.pruned = true;
+                    break;
+                }
+            }
+        }
+        trial.testScore = score(problem, nn, problem.test);
+        trial.seconds = (System.nanoTime() - start) / 1e9;
+    }
+
+    // Accuracy in percent for classification, otherwise the negated mean squared error per output
+    static double score(Problem problem, MLP nn, ArrayList<TrainingExample> data) {
+        if (problem.classification) {
+            return LetterRecognitionExperiment.accuracy(nn, data);
+        }
+        double error = 0;
+        for (TrainingExample example : data) {
+            nn.forward(example.input);
+            for (int k = 0; k < problem.NO; k++) {
+                double diff = nn.O[k] - example.output[k];
+                error += diff * diff;
+            }
+        }
+        return -error / (data.size() * problem.NO);
+    }
+
+    // Each experiment's own settings, with a small grid around learning rate and hidden units
+    static HashMap<String, String> defaults(String problem) {
+        HashMap<String, String> spec = new HashMap<>();
+        if (problem.equals("xor")) {
+            spec.put("lr", "0.3,1");
+            spec.put("hidden", "2,4,8");
+            spec.put("batch", "4");
+            spec.put("epochs", "2000");
+            spec.put("activation", "LINEAR");
+            spec.put("evalEvery", "200");
+        } else if (problem.equals("sine")) {
+            spec.put("lr", "0.003,0.01,0.03");
+            spec.put("hidden", "5,10,20");
+            spec.put("batch", "5");
+            spec.put("epochs", "5000");
+            spec.put("activation", "LINEAR");
+            spec.put("evalEvery", "500");
+        } else {
+            spec.put("lr", "0.03,0.1");
+            spec.put("hidden", "20,40,80");
+            spec.put("batch", "10");
+            spec.put("epochs", "50");
+            spec.put("activation", "SOFTMAX");
+            spec.put("evalEvery", "5");
+        }
+        return spec;
+    }
+
+    // Loads or generates the data of a problem
+    static Problem loadProblem(String name, long seed) {
+        Problem problem = new Problem();
+        problem.name = name;
+        if (name.equals("xor")) {
+            // The four rows are the whole problem, so they serve for validation and test as well
+            ArrayList<TrainingExample> data = new ArrayList<>();
+            data.add(new TrainingExample(new double[] {0, 0}, new double[] {0}));
+            data.add(new TrainingExample(new double[] {0, 1}, new double[] {1}));
+            data.add(new TrainingExample(new double[] {1, 0}, new double[] {1}));
+            data.add(new TrainingExample(new double[] {1, 1}, new double[] {0}));
+            problem.NI = 2;
+            problem.NO = 1;
+            problem.training = data;
+            problem.validation = data;
+            problem.test = data;
+        } else if (name.equals("sine")) {
+            // Same generator as SineExperiment, seeded; its 400 training rows lose 40 to validation
+            Random rand = new Random(seed);
+            ArrayList<TrainingExample> data = new ArrayList<>();
+            for (int n = 0; n < 500; n++) {
+                double[] input = new double[4];
+                for (int j = 0; j < 4; j++) {
+                    input[j] = rand.nextDouble() * 2 - 1;
+                }
+                data.add(new TrainingExample(input, new double[] {Math.sin(input[0] - input[1] + input[2] - input[3])}));
+            }
+            problem.NI = 4;
+            problem.NO = 1;
+            problem.training = new ArrayList<>(data.subList(0, 360));
+            problem.validation = new ArrayList<>(data.subList(360, 400));
+            problem.test = new ArrayList<>(data.subList(400, 500));
+        } else if (name.equals("letter")) {
+            // LetterRecognitionExperiment's 80/20 split, with the last 10% of the training rows for validation
+            ArrayList<TrainingExample> data = LetterRecognitionExperiment.loadDataset("letter-recognition.data");
+            int trainingSamples = (int) (0.8 * data.size());
+            int validationStart = (int) (0.9 * trainingSamples);
+            problem.NI = 16;
+            problem.NO = 26;
+            problem.classification = true;
+            problem.training = new ArrayList<>(data.subList(0, validationStart));
+            problem.validation = new ArrayList<>(data.subList(validationStart, trainingSamples));
+            problem.test = new ArrayList<>(data.subList(trainingSamples, data.size()));
+        } else {
+            throw new IllegalArgumentException("Unknown problem " + name + "; expected letter, sine or xor");
+        }
+        return problem;
+    }
+
+    // Every combination of the listed values
+    static List<Trial> gridTrials(HashMap<String, String> spec) {
+        ArrayList<Trial> trials = new ArrayList<>();
+        for (String lr : spec.get("lr").split(",")) {
+            for (String hidden : spec.get("hidden").split(",")) {
+                for (String batch : spec.get("batch").split(",")) {
+                    for (String epochs : spec.get("epochs").split(",")) {
+                        for (String activation : spec.get("activation").split(",")) {
+                            Trial trial = new Trial();
+                            trial.id = trials.size();
+                            trial.learningRate = Double.parseDouble(lr);
+                            trial.hidden = Integer.parseInt(hidden);
+                            trial.batchSize = Integer.parseInt(batch);
+                            trial.epochs = Integer.parseInt(epochs);
+                            trial.activation = ActivationFunctionType.valueOf(activation);
+                            trials.add(trial);
+                        }
+                    }
+                }
+            }
+        }
+        return trials;
+    }
+
+    // count configurations drawn independently per parameter, from the listed choices or a lo:hi range
+    static List<Trial> randomTrials(HashMap<String, String> spec, int count, Random rand) {
+        ArrayList<Trial> trials = new ArrayList<>();
+        for (int n = 0; n < count; n++) {
+            Trial trial = new Trial();
+            trial.id = n;
+            String lr = spec.get("lr");
+            if (lr.contains(":")) {
+                String[] range = lr.split(":");
+                double lo = Math.log(Double.parseDouble(range[0]));
+                double hi = Math.log(Double.parseDouble(range[1]));
+                trial.learningRate = Math.exp(lo + rand.nextDouble() * (hi - lo));
+            } else {
+                trial.learningRate = Double.parseDouble(choose(lr, rand));
+            }
+            trial.hidden = drawInt(spec.get("hidden"), rand);
+            trial.batchSize = drawInt(spec.get("batch"), rand);
+            trial.epochs = Integer.parseInt(choose(spec.get("epochs"), rand));
+            trial.activation = ActivationFunctionType.valueOf(choose(spec.get("activation"), rand));
+            trials.add(trial);
+        }
+        return trials;
+    }
+
+    // A uniformly drawn integer from lo:hi, or one of the listed choices
+    private static int drawInt(String values, Random rand) {
+        if (values.contains(":")) {
+            String[] range = values.split(":");
+            int lo = Integer.parseInt(range[0]);
+            int hi = Integer.parseInt(range[1]);
+            return lo + rand.nextInt(hi - lo + 1);
+        }
+        return Integer.parseInt(choose(values, rand));
+    }
+
+    private static String choose(String values, Random rand) {
+        String[] choices = values.split(",");
+        return choices[rand.nextInt(choices.length)];
+    }
+}
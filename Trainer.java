@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+// Single-threaded minibatch training loop that allocates nothing once it is running.
+// The minibatch buffers are sized up front and each epoch visits the data through a
+// reusable index permutation, so the training list itself is never reordered and can
+// be shared with other trainers. Weight updates use plain gradient descent unless an
+// Optimizer is given. Minibatches whose examples all carry a class label, and every minibatch
+// from a BinaryDataset, use the class-index backward pass instead of one-hot target rows.
+// With a TrainingMetrics attached every epoch is timed phase by phase.
+public class Trainer {
+    MLP nn;
+    int batchSize;
+    Random rand;
+    Optimizer optimizer; // null for plain gradient descent
+    TrainingMetrics metrics; // null when instrumentation is off
+    int[] order = new int[0]; // visiting order of the current epoch
+    double[][] batchInputs, batchTargets;
+    int[] batchLabels;
+    double[][] rowInputs, rowTargets; // decoded rows when training from a BinaryDataset or Dataset
+
+    public Trainer(MLP nn, int batchSize, Random rand) {
+        this.nn = nn;
+        this.batchSize = batchSize;
+        this.rand = rand;
+        batchInputs = new double[batchSize][];
+        batchTargets = new double[batchSize][];
+        batchLabels = new int[batchSize];
+        rowInputs = new double[batchSize][nn.NI];
+        rowTargets = new double[batchSize][nn.NO];
+        nn.ensureBatchCapacity(batchSize);
+    }
+
+    // Same as above, applying every update through optimizer
+    public Trainer(MLP nn, int batchSize, Random rand, Optimizer optimizer) {
+        this(nn, batchSize, rand);
+        this.optimizer = optimizer;
+    }
+
+    // Times every following epoch into metrics; null turns instrumentation off
+    public void setMetrics(TrainingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Trains one epoch over data in a freshly shuffled order and returns the summed error.
+    // Weights are updated after every batchSize examples and once more for any remainder.
+    public double trainEpoch(ArrayList<TrainingExample> data, double learningRate) {
+        long t = start();
+        shuffle(data.size());
+        t = mark(TrainingMetrics.SHUFFLE, t);
+
+        double error = 0;
+        for (int start = 0; start < order.length; start += batchSize) {
+            int count = Math.min(batchSize, order.length - start);
+            boolean labelled = true;
+            for (int b = 0; b < count; b++) {
+                TrainingExample example = data.get(order[start + b]);
+                batchInputs[b] = example.input;
+                batchTargets[b] = example.output;
+                batchLabels[b] = example.label;
+                labelled &= example.label >= 0;
+            }
+            t = mark(TrainingMetrics.LOAD, t);
+            nn.forwardBatch(batchInputs, count);
+            t = mark(TrainingMetrics.FORWARD, t);
+            error += labelled ? nn.backwardBatch(batchLabels, 0) : nn.backwardBatch(batchTargets);
+            t = mark(TrainingMetrics.BACKWARD, t);
+            update(learningRate);
+            t = mark(TrainingMetrics.UPDATE, t);
+        }
+        end(order.length, error);
+        return error;
+    }
+
+    // Same as above, decoding each minibatch directly from the memory-mapped file
+    public double trainEpoch(BinaryDataset data, double learningRate) {
+        checkShape(data.features, data.classes);
+        long t = start();
+        shuffle(data.size());
+        t = mark(TrainingMetrics.SHUFFLE, t);
+
+        double error = 0;
+        for (int start = 0; start < order.length; start += batchSize) {
+            int count = Math.min(batchSize, order.length - start);
+            for (int b = 0; b < count; b++) {
+                data.readInput(order[start + b], rowInputs[b]);
+                batchLabels[b] = data.label(order[start + b]);
+            }
+            t = mark(TrainingMetrics.LOAD, t);
+            nn.forwardBatch(rowInputs, count);
+            t = mark(TrainingMetrics.FORWARD, t);
+            error += nn.backwardBatch(batchLabels, 0);
+            t = mark(TrainingMetrics.BACKWARD, t);
+            update(learningRate);
+            t = mark(TrainingMetrics.UPDATE, t);
+        }
+        end(order.length, error);
+        return error;
+    }
+
+    // Trains one epoch over a streaming source in the order it delivers examples
+    public double trainEpoch(Dataset data, double learningRate) {
+        checkShape(data.numInputs(), data.numOutputs());
+        long t = start();
+        data.reset();
+        t = mark(TrainingMetrics.LOAD, t);
+
+        double error = 0;
+        long examples = 0;
+        int count = batchSize;
+        while (count == batchSize) {
+            count = 0;
+            while (count < batchSize && data.next(rowInputs[count], rowTargets[count])) {
+                count++;
+            }
+            t = mark(TrainingMetrics.LOAD, t);
+            if (count == 0) {
+                break;
+            }
+            examples += count;
+            nn.forwardBatch(rowInputs, count);
+            t = mark(TrainingMetrics.FORWARD, t);
+            error += nn.backwardBatch(rowTargets);
+            t = mark(TrainingMetrics.BACKWARD, t);
+            update(learningRate);
+            t = mark(TrainingMetrics.UPDATE, t);
+        }
+        end(examples, error);
+        return error;
+    }
+
+    // A dataset of another shape would be decoded at the wrong offsets or yield out-of-range labels
+    private void checkShape(int features, int classes) {
+        if (features != nn.NI || classes != nn.NO) {
+            throw new IllegalArgumentException("Dataset has " + features + " features and " + classes
+                + " classes, the model expects " + nn.NI + " inputs and " + nn.NO + " outputs");
+        }
+    }
+
+    // Instrumentation hooks; without metrics they do nothing and never read the clock
+    private long start() {
+        if (metrics == null) {
+            return 0;
+        }
+        metrics.epochStart();
+        return System.nanoTime();
+    }
+
+    private long mark(int phase, long since) {
+        return metrics == null ? 0 : metrics.mark(phase, since);
+    }
+
+    private void end(long examples, double error) {
+        if (metrics != null) {
+            metrics.epochEnd(examples, error);
+        }
+    }
+
+    private void update(double learningRate) {
+        if (optimizer == null) {
+            nn.updateWeights(learningRate);
+        } else {
+            nn.updateWeights(optimizer, learningRate);
+        }
+    }
+
+    // Fisher-Yates shuffle of order, which is only reallocated when the data size changes
+    private void shuffle(int size) {
+        if (order.length != size) {
+            order = new int[size];
+            for (int n = 0; n < size; n++) {
+                order[n] = n;
+            }
+        }
+        for (int n = size - 1; n > 0; n--) {
+            int m = rand.nextInt(n + 1);
+            int tmp = order[n];
+            order[n] = order[m];
+            order[m] = tmp;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// JFR event committed by TrainingMetrics.report() once per epoch.
+// Record with e.g. java -XX:StartFlightRecording:filename=training.jfr -Dmlp.metrics=metrics.csv ...
+// and inspect with jfr print --events mlp.TrainingEpoch training.jfr
+@Name("mlp.TrainingEpoch")
+@Label("Training Epoch")
+@Category("MLP")
+@Description("Phase timings, throughput, allocation and quality of one training epoch")
+class TrainingEpochEvent extends jdk.jfr.Event {
+    @Label("Epoch")
+    int epoch;
+
+    @Label("Examples")
+    long examples;
+
+    @Label("Examples Per Second")
+    double examplesPerSecond;
+
+    @Label("Shuffle Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long shuffleNanos;
+
+    @Label("Load Time")
+    @Description("Gathering or decoding minibatch rows")
+    @Timespan(Timespan.NANOSECONDS)
+    long loadNanos;
+
+    @Label("Forward Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long forwardNanos;
+
+    @Label("Backward Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long backwardNanos;
+
+    @Label("Update Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateNanos;
+
+    @Label("Epoch Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long epochNanos;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Loss")
+    @Description("Training error per example")
+    double loss;
+
+    @Label("Accuracy")
+    @Description("Percentage, NaN when not measured")
+    double accuracy;
+}
@@ -1,9 +1,17 @@
 class TrainingExample {
     public double[] input;
     public double[] output;
+    public int label = -1; // class index for classification examples, -1 if the target is only given by output
 
     public TrainingExample(double[] input, double[] output) {
         this.input = input;
         this.output = output;
     }
+
+    // Classification example; output is the one-hot form of label and may be shared between examples
+    public TrainingExample(double[] input, double[] output, int label) {
+        this.input = input;
+        this.output = output;
+        this.label = label;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+// Per-epoch instrumentation of Trainer: nanosecond time spent in each phase, examples per second,
+// bytes allocated by the training thread, and loss and accuracy. Each report() commits a
+// TrainingEpochEvent to JFR and, if a log file was given, appends one CSV row or JSON line
+// (JSON when the file name ends in .json).
+//
+// Metrics are off unless a Trainer is given an instance; with none the training loop does not
+// read the clock at all. Experiments create one from -Dmlp.metrics=<file> via fromSystemProperty().
+// Everything between epochStart() and epochEnd() is allocation-free, so the allocation figure
+// measures the training loop alone.
+public class TrainingMetrics implements AutoCloseable {
+    // Phases timed by Trainer
+    static final int SHUFFLE = 0, LOAD = 1, FORWARD = 2, BACKWARD = 3, UPDATE = 4;
+    static final String[] PHASE_NAMES = {"shuffle", "load", "forward", "backward", "update"};
+
+    static com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    final long[] phaseNanos = new long[PHASE_NAMES.length];
+    long examples;
+    long epochNanos;
+    long allocatedBytes;
+    double loss; // error per example
+    long startNanos, startBytes;
+    BufferedWriter log; // null when only JFR events are wanted
+    boolean json;
+    boolean headerWritten;
+
+    // Metrics reported only as JFR events
+    public TrainingMetrics() {
+    }
+
+    // Metrics also appended to filename, as JSON lines if it ends in .json and CSV otherwise
+    public TrainingMetrics(String filename) throws IOException {
+        log = new BufferedWriter(new FileWriter(filename));
+        json = filename.endsWith(".json");
+    }
+
+    // A TrainingMetrics logging to the file named by -Dmlp.metrics, or null (metrics off) if it is not set
+    public static TrainingMetrics fromSystemProperty() throws IOException {
+        String filename = System.getProperty("mlp.metrics");
+        return filename == null ? null : new TrainingMetrics(filename);
+    }
+
+    // Clears the counters and starts the epoch clock and allocation counter
+    void epochStart() {
+        for (int p = 0; p < phaseNanos.length; p++) {
+            phaseNanos[p] = 0;
+        }
+        examples = 0;
+        startBytes = threads.getCurrentThreadAllocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    // Adds the time since `since` to phase and returns the current time, to be passed as the next `since`
+    long mark(int phase, long since) {
+        long now = System.nanoTime();
+        phaseNanos[phase] += now - since;
+        return now;
+    }
+
+    // Stops the epoch clock and allocation counter
+    void epochEnd(long examples, double error) {
+        epochNanos = System.nanoTime() - startNanos;
+        allocatedBytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
+        this.examples = examples;
+        loss = examples > 0 ? error / examples : 0.0;
+    }
+
+    double examplesPerSecond() {
+        return epochNanos > 0 ? examples / (epochNanos / 1e9) : 0.0;
+    }
+
+    // Emits the last epoch's figures; pass Double.NaN as accuracy when it was not measured
+    public void report(int epoch, double accuracy) throws IOException {
+        TrainingEpochEvent event = new TrainingEpochEvent();
+        if (event.isEnabled()) {
+            event.epoch = epoch;
+            event.examples = examples;
+            event.examplesPerSecond = examplesPerSecond();
+            event.shuffleNanos = phaseNanos[SHUFFLE];
+            event.loadNanos = phaseNanos[LOAD];
+            event.forwardNanos = phaseNanos[FORWARD];
+            event.backwardNanos = phaseNanos[BACKWARD];
+            event.updateNanos = phaseNanos[UPDATE];
+            event.epochNanos = epochNanos;
+            event.allocatedBytes = allocatedBytes;
+            event.loss = loss;
+            event.accuracy = accuracy;
+            event.commit();
+        }
+        if (log == null) {
+            return;
+        }
+
+        if (json) {
+            StringBuilder line = new StringBuilder("{\"epoch\":").append(epoch)
+                .append(",\"examples\":").append(examples)
+                .append(",\"examplesPerSecond\":").append(String.format(Locale.ROOT, "%.1f", examplesPerSecond()));
+            for (int p = 0; p < PHASE_NAMES.length; p++) {
+                line.append(",\"").append(PHASE_NAMES[p]).append("Nanos\":").append(phaseNanos[p]);
+            }
+            line.append(",\"epochNanos\":").append(epochNanos)
+                .append(",\"allocatedBytes\":").append(allocatedBytes)
+                .append(",\"loss\":").append(number(loss, "null"))
+                .append(",\"accuracy\":").append(number(accuracy, "null"))
+                .append("}\n");
+            log.write(line.toString());
+        } else {
+            if (!headerWritten) {
+                StringBuilder header = new StringBuilder("epoch,examples,examplesPerSecond");
+                for (String phase : PHASE_NAMES) {
+                    header.append(',').append(phase).append("Nanos");
+                }
+                log.write(header.append(",epochNanos,allocatedBytes,loss,accuracy\n").toString());
+                headerWritten = true;
+            }
+            StringBuilder line = new StringBuilder().append(epoch).append(',').append(examples)
+                .append(',').append(String.format(Locale.ROOT, "%.1f", examplesPerSecond()));
+            for (long nanos : phaseNanos) {
+                line.append(',').append(nanos);
+            }
+            line.append(',').append(epochNanos).append(',').append(allocatedBytes).append(',').append(number(loss, ""))
+                .append(',').append(number(accuracy, "")).append('\n');
+            log.write(line.toString());
+        }
+        log.flush();
+    }
+
+    // value as text, or missing for NaN and infinities, which neither CSV readers nor JSON accept
+    private static String number(double value, String missing) {
+        return Double.isFinite(value) ? Double.toString(value) : missing;
+    }
+
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+}
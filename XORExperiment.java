@@ -44,11 +44,13 @@ public class XORExperiment {
             }
         }
 
-        // Calculate final overall error
+        // Calculate final overall error using a read-only snapshot of the trained weights
+        MLPSnapshot model = nn.snapshot();
+        double[] prediction = new double[NO];
         double finalError = 0;
         for (TrainingExample example : trainingData) {
-            nn.forward(example.input);
-            double diff = nn.O[0] - example.output[0];
+            model.predict(example.input, prediction);
+            double diff = prediction[0] - example.output[0];
             finalError += diff * diff;
         }
         finalError = Math.sqrt(finalError / trainingData.size()) * 100;
@@ -74,13 +76,13 @@ public class XORExperiment {
 
             writer.write("\nResults:\n");
             for (TrainingExample example : trainingData) {
-                nn.forward(example.input);
+                model.predict(example.input, prediction);
                 String inputString = java.util.Arrays.toString(example.input);
                 writer.write(String.format(
                     "Input: %s, Expected Output: %.1f, Predicted Output: %.4f\n",
                     inputString,
                     example.output[0],
-                    nn.O[0]
+                    prediction[0]
                 ));
             }
 
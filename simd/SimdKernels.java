@@ -0,0 +1,52 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Kernels implemented with explicit SIMD lanes through the incubating Vector API.
+// Kept apart from the other sources because it needs the incubator module to compile:
+//   javac --add-modules jdk.incubator.vector -cp . -d . simd/SimdKernels.java
+// and to run: java --add-modules jdk.incubator.vector ...
+// axpy multiplies and adds separately rather than fusing, so its results are bit-identical to the
+// scalar loop; dot sums lane by lane and so differs from the scalar sum only by rounding.
+public final class SimdKernels implements Kernels {
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void axpy(double a, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        DoubleVector av = DoubleVector.broadcast(SPECIES, a);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector xv = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+            yv.add(xv.mul(av)).intoArray(y, yOffset + i);
+        }
+        // Tail elements that do not fill a whole vector
+        for (; i < length; i++) {
+            y[yOffset + i] += a * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector av = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector bv = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            acc = acc.add(av.mul(bv));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        // Tail elements that do not fill a whole vector
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.length() + "x64";
+    }
+}